@@ -0,0 +1,218 @@
+package railsystem;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs searches from a file without the menu. Each line holds the positional
+ * fields of {@link Terminal#createSearch} separated by {@code |}, for example
+ * {@code Paris|08:00|Berlin||||ICE}; trailing fields may be left out. Blank
+ * lines and lines starting with {@code #} are skipped.
+ * <p>
+ * Queries are read in chunks that run through {@link Terminal#searchBatch}, so
+ * queries from the same city share their leg lookups, on a fixed pool of
+ * workers. Their results are written as one JSON object per line, in input
+ * order, as soon as each chunk is ready. A query's latency is the time its
+ * chunk took. A summary with throughput and latency percentiles goes to
+ * standard error.
+ */
+public class BatchSearch {
+    private static final int MAX_FIELDS = 12;
+    private static final int QUERIES_PER_CHUNK = 128;
+    // Chunks waiting to be written, per worker, before reading stops
+    private static final int PENDING_PER_WORKER = 2;
+
+    private final Terminal terminal;
+    private final int workers;
+    private final Integer limit;
+    private final LatencyStats latency = new LatencyStats();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * @param limit maximum number of trips written per query (sorted by
+     *              duration), or null for all of them
+     */
+    public BatchSearch(Terminal terminal, int workers, Integer limit) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("At least one worker is required");
+        }
+        if (limit != null && limit < 0) {
+            throw new IllegalArgumentException("The trip limit must not be negative");
+        }
+        this.terminal = terminal;
+        this.workers = workers;
+        this.limit = limit;
+    }
+
+    private record Query(int lineNumber, String text) {
+    }
+
+    /**
+     * Searches every query in {@code input} and writes a result line per query to
+     * {@code out}. Returns the number of queries that failed.
+     */
+    public long run(Path input, PrintStream out) throws IOException {
+        Duration timeBudget = terminal.getSearchTimeBudget();
+        Deque<CompletableFuture<List<String>>> pending = new ArrayDeque<>();
+        List<Query> chunk = new ArrayList<>(QUERIES_PER_CHUNK);
+        long queries = 0;
+        long start = System.nanoTime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                chunk.add(new Query(lineNumber, line));
+                queries++;
+                if (chunk.size() == QUERIES_PER_CHUNK) {
+                    pending.add(submit(executor, chunk, timeBudget));
+                    chunk = new ArrayList<>(QUERIES_PER_CHUNK);
+                    if (pending.size() >= workers * PENDING_PER_WORKER) {
+                        write(pending.remove(), out);
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                pending.add(submit(executor, chunk, timeBudget));
+            }
+            while (!pending.isEmpty()) {
+                write(pending.remove(), out);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        out.flush();
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("[INFO] %d query(ies) in %.2f s (%.1f queries/s) on %d worker(s), %d failed.%n",
+                queries, seconds, queries / seconds, workers, errors.sum());
+        System.err.println("[INFO] Query latency: " + latency);
+        return errors.sum();
+    }
+
+    public LatencyStats getLatency() {
+        return latency;
+    }
+
+    private CompletableFuture<List<String>> submit(ExecutorService executor, List<Query> chunk,
+            Duration timeBudget) {
+        return CompletableFuture.supplyAsync(() -> search(chunk, timeBudget), executor);
+    }
+
+    private static void write(CompletableFuture<List<String>> lines, PrintStream out) {
+        for (String line : lines.join()) {
+            out.println(line);
+        }
+    }
+
+    /**
+     * Searches one chunk and returns its result lines. Lines that do not parse
+     * fail on their own; if the batch search itself fails, the chunk's queries
+     * are searched one by one so that only the failing query reports the error.
+     */
+    private List<String> search(List<Query> chunk, Duration timeBudget) {
+        long start = System.nanoTime();
+        String[] lines = new String[chunk.size()];
+        List<SearchCriteria> criteria = new ArrayList<>(chunk.size());
+        List<Integer> positions = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            try {
+                criteria.add(criteriaOf(chunk.get(i).text()));
+                positions.add(i);
+            } catch (RuntimeException e) {
+                lines[i] = error(chunk.get(i), e, System.nanoTime() - start);
+            }
+        }
+
+        List<SearchResult> results = null;
+        try {
+            results = terminal.searchBatch(criteria, timeBudget);
+        } catch (RuntimeException e) {
+            // Retried per query below
+        }
+        long elapsed = System.nanoTime() - start;
+
+        for (int j = 0; j < criteria.size(); j++) {
+            Query query = chunk.get(positions.get(j));
+            if (results != null) {
+                lines[positions.get(j)] = result(query, results.get(j), elapsed);
+                continue;
+            }
+            long queryStart = System.nanoTime();
+            try {
+                SearchResult result = terminal.searchWithCache(criteria.get(j), timeBudget);
+                lines[positions.get(j)] = result(query, result, System.nanoTime() - queryStart);
+            } catch (RuntimeException e) {
+                lines[positions.get(j)] = error(query, e, System.nanoTime() - queryStart);
+            }
+        }
+        return Arrays.asList(lines);
+    }
+
+    private String result(Query query, SearchResult result, long elapsed) {
+        List<Trip> trips = result.getTrips();
+        List<Object> tripsJson = new ArrayList<>();
+        for (Trip trip : limit == null ? trips : trips.subList(0, Math.min(limit, trips.size()))) {
+            tripsJson.add(Json.trip(trip));
+        }
+        Map<String, Object> json = lineJson(query);
+        json.put("count", trips.size());
+        json.put("partial", result.isPartial());
+        json.put("trips", tripsJson);
+        return finish(json, elapsed);
+    }
+
+    /**
+     * Result line of a query that failed. Any exception of the search fails
+     * only its own query, so one bad line never stops the batch.
+     */
+    private String error(Query query, RuntimeException failure, long elapsed) {
+        errors.increment();
+        boolean expected = failure instanceof IllegalArgumentException || failure instanceof DateTimeParseException;
+        Map<String, Object> json = lineJson(query);
+        json.put("error", expected && failure.getMessage() != null ? failure.getMessage() : failure.toString());
+        return finish(json, elapsed);
+    }
+
+    private static Map<String, Object> lineJson(Query query) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("line", query.lineNumber());
+        return json;
+    }
+
+    private String finish(Map<String, Object> json, long elapsed) {
+        latency.record(elapsed);
+        json.put("latencyMs", elapsed / 1e6);
+        return Json.write(json);
+    }
+
+    private static SearchCriteria criteriaOf(String query) {
+        String[] fields = query.split("\\|", -1);
+        if (fields.length > MAX_FIELDS) {
+            throw new IllegalArgumentException("Expected at most " + MAX_FIELDS + " fields but got " + fields.length);
+        }
+        return Terminal.criteriaOf(Arrays.stream(fields).map(String::trim).toList());
+    }
+}
@@ -1,7 +1,6 @@
 package railsystem;
 
 import java.util.List;
-import java.math.BigDecimal;
 
 import lombok.Data;
 
@@ -13,10 +12,12 @@ public class Booking {
         this.tickets = tickets;
     }
 
-    public BigDecimal getTotalBookingCost() {
-        return tickets.stream()
-                .map(Ticket::getTotalCost)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    public Money getTotalBookingCost() {
+        long cents = 0;
+        for (Ticket ticket : tickets) {
+            cents += ticket.getTotalCost().getCents();
+        }
+        return Money.ofCents(cents);
     }
 
     @Override
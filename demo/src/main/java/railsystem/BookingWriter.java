@@ -0,0 +1,187 @@
+package railsystem;
+
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind booking pipeline with group commit. Bookings are queued and a
+ * single writer thread saves them in batches, one transaction per batch, so
+ * many bookings share one disk sync. A batch is closed once it holds
+ * {@code maxBatchSize} bookings, its first booking has waited {@code maxDelay}
+ * or the writer is closed. Each booking's future completes only after the
+ * commit that made it durable; a booking that fails is rolled back on its own
+ * and the rest of the batch is still committed.
+ */
+final class BookingWriter implements AutoCloseable {
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final long IDLE_POLL_MILLIS = 100;
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(IDLE_POLL_MILLIS);
+
+    private final DBManager dbManager;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread thread;
+    private volatile boolean closed;
+
+    // Written by the writer thread only
+    private volatile long bookings;
+    private volatile long batches;
+    private volatile int largestBatch;
+    private volatile long writeNanos;
+
+    private record Pending(Booking booking, CompletableFuture<Void> done) {
+    }
+
+    BookingWriter(DBManager dbManager, int maxBatchSize, Duration maxDelay) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        this.dbManager = dbManager;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.thread = new Thread(this::run, "booking-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues a booking, waiting for room if the queue is full. The future
+     * completes once the booking is committed, or exceptionally if it could not
+     * be saved or the writer is closed.
+     */
+    CompletableFuture<Void> submit(Booking booking) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (closed) {
+            done.completeExceptionally(new IllegalStateException("Booking writer is closed"));
+            return done;
+        }
+        Pending pending = new Pending(booking, done);
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            done.completeExceptionally(e);
+            return done;
+        }
+        // The writer may have stopped between the check above and the put; then
+        // nobody else will take the booking, so withdraw it here
+        if (closed && queue.removeIf(queued -> queued == pending)) {
+            done.completeExceptionally(new IllegalStateException("Booking writer is closed"));
+        }
+        return done;
+    }
+
+    /**
+     * Stops accepting bookings and waits until the queued ones are written.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Counts of written bookings and batches, and the throughput while writing,
+     * which is the most the writer can sustain.
+     */
+    @Override
+    public String toString() {
+        long bookingCount = bookings;
+        long batchCount = batches;
+        double seconds = writeNanos / 1e9;
+        return String.format("BookingWriter[bookings=%d, batches=%d, mean batch=%.1f, largest batch=%d, "
+                + "%.1f bookings/s while writing]", bookingCount, batchCount,
+                batchCount == 0 ? 0.0 : (double) bookingCount / batchCount, largestBatch,
+                seconds == 0 ? 0.0 : bookingCount / seconds);
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize && !closed) {
+                    // Take whatever is already queued, then wait out the rest of the delay
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    // In slices, so that close need not wait for a long delay to pass
+                    Pending next = queue.poll(Math.min(remaining, IDLE_POLL_NANOS), TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Write what has been collected, then drain the queue and stop
+                closed = true;
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+
+        // Bookings that raced with close: fail them rather than leave them waiting
+        queue.drainTo(batch);
+        for (Pending pending : batch) {
+            pending.done().completeExceptionally(new IllegalStateException("Booking writer is closed"));
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        long start = System.nanoTime();
+        List<Pending> written = new ArrayList<>(batch.size());
+        try {
+            dbManager.write(conn -> {
+                conn.setAutoCommit(false);
+                for (Pending pending : batch) {
+                    Savepoint savepoint = conn.setSavepoint();
+                    try {
+                        dbManager.insertBooking(conn, pending.booking());
+                        conn.releaseSavepoint(savepoint);
+                        written.add(pending);
+                    } catch (SQLException e) {
+                        conn.rollback(savepoint);
+                        pending.done().completeExceptionally(e);
+                    }
+                }
+                conn.commit();
+                return null;
+            });
+        } catch (SQLException | RuntimeException e) {
+            for (Pending pending : batch) {
+                pending.done().completeExceptionally(e);
+            }
+            return;
+        }
+
+        writeNanos += System.nanoTime() - start;
+        bookings += written.size();
+        batches++;
+        largestBatch = Math.max(largestBatch, batch.size());
+        for (Pending pending : written) {
+            pending.done().complete(null);
+        }
+    }
+}
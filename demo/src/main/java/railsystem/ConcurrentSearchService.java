@@ -0,0 +1,82 @@
+package railsystem;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Concurrent façade over {@link Terminal}'s search, used by the HTTP server.
+ * Every query runs against the timetable snapshot that is current when it
+ * starts, so replacing the connections never affects a search in flight, and
+ * goes through the result cache.
+ */
+public class ConcurrentSearchService implements AutoCloseable {
+    private final Terminal terminal;
+    private final ExecutorService executor;
+
+    /**
+     * Runs every query on its own virtual thread, so searches never wait on
+     * each other.
+     */
+    public ConcurrentSearchService(Terminal terminal) {
+        this(terminal, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Runs the queries on a fixed pool of {@code threads} threads.
+     */
+    public ConcurrentSearchService(Terminal terminal, int threads) {
+        this(terminal, Executors.newFixedThreadPool(threads));
+    }
+
+    private ConcurrentSearchService(Terminal terminal, ExecutorService executor) {
+        this.terminal = terminal;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<SearchResult> submit(SearchCriteria criteria) {
+        return submit(criteria, null);
+    }
+
+    /**
+     * Starts a search with an optional time budget (null for none).
+     */
+    public CompletableFuture<SearchResult> submit(SearchCriteria criteria, Duration timeBudget) {
+        return CompletableFuture.supplyAsync(() -> terminal.searchWithCache(criteria, timeBudget), executor);
+    }
+
+    /**
+     * Runs a search and waits for it. Failures are rethrown as they were
+     * thrown by the search.
+     */
+    public SearchResult search(SearchCriteria criteria, Duration timeBudget) {
+        try {
+            return submit(criteria, timeBudget).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Runs all queries concurrently and returns their results in query order.
+     */
+    public List<SearchResult> searchAll(Collection<SearchCriteria> queries) {
+        List<CompletableFuture<SearchResult>> pending = queries.stream().map(this::submit).toList();
+        return pending.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * Waits for the submitted searches to finish.
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
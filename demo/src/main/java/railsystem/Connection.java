@@ -46,7 +46,7 @@ public class Connection {
                 .routeId(routeId)
                 .train(Train.getInstance(trainType))
                 .schedule(new TrainSchedule(operatingDays))
-                .ticketRates(new TicketRates(firstClassRate, secondClassRate))
+                .ticketRates(new TicketRates(Money.of(firstClassRate), Money.of(secondClassRate)))
                 .departureStop(new TrainStop(departureCity, departureTime, false))
                 .arrivalStop(new TrainStop(arrivalCity, arrivalTime, nextDay))
                 .build();
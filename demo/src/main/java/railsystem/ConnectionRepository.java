@@ -1,23 +1,194 @@
 package railsystem;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
 
+/**
+ * Holds the connection data as an immutable {@link TimetableSnapshot} that is
+ * replaced by an atomic swap, so searches can run concurrently with each other
+ * and with updates without locking.
+ */
 public class ConnectionRepository {
-    private List<Connection> connections;
+    private final boolean indexed;
+    private final boolean pinned;
+    private final AtomicReference<TimetableSnapshot> snapshot;
 
     public ConnectionRepository(List<Connection> connections) {
-        this.connections = connections;
+        this(connections, false);
     }
 
+    /**
+     * Creates a repository that, when {@code indexed} is true, keeps departure-city
+     * and arrival-city indexes so that criteria naming a city avoid a full scan.
+     */
+    public ConnectionRepository(List<Connection> connections, boolean indexed) {
+        this.indexed = indexed;
+        this.pinned = false;
+        this.snapshot = new AtomicReference<>(new TimetableSnapshot(0, connections));
+    }
+
+    private ConnectionRepository(TimetableSnapshot snapshot, boolean indexed) {
+        this.indexed = indexed;
+        this.pinned = true;
+        this.snapshot = new AtomicReference<>(snapshot);
+    }
+
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * Unmodifiable list of the current connections, or null if none were set.
+     */
     public List<Connection> getConnections() {
-        return connections;
+        return snapshot.get().getConnections();
+    }
+
+    /**
+     * Publishes a new snapshot of the connections. Searches already running keep
+     * the snapshot they started with.
+     */
+    public synchronized void setConnections(List<Connection> connections) {
+        if (pinned) {
+            throw new UnsupportedOperationException("A pinned repository cannot be changed.");
+        }
+        snapshot.set(new TimetableSnapshot(snapshot.get().getVersion() + 1, connections));
     }
 
-    public void setConnections(List<Connection> connections) {
-        this.connections = connections;
+    /**
+     * Incremented every time the connections are replaced, so derived data such as
+     * cached search results can tell that it is stale.
+     */
+    public long getVersion() {
+        return snapshot.get().getVersion();
+    }
+
+    /**
+     * A read-only repository fixed to the current snapshot, for running one
+     * search against data that cannot change under it.
+     */
+    public ConnectionRepository pin() {
+        return pinned ? this : new ConnectionRepository(snapshot.get(), indexed);
     }
 
     public List<Connection> search(SearchCriteria criteria) {
-        return connections.stream().filter(criteria::matches).collect(Collectors.toList());
+        List<Connection> result = new ArrayList<>();
+        TimetableSnapshot data = snapshot.get();
+        if (data.getConnections() == null) {
+            return result;
+        }
+
+        ConnectionTable current = data.getTable();
+        IntPredicate filter = rowFilter(current, criteria);
+        if (!indexed) {
+            collect(current, null, 0, current.size(), filter, result);
+            return result;
+        }
+
+        // Binary search the time window in the city indexes and keep the smaller slice
+        int[] byDeparture = null;
+        int departureFrom = 0;
+        if (criteria.getDepartureCity() != null) {
+            byDeparture = lookup(current.departuresFrom(criteria.getDepartureCity()));
+            if (criteria.getEarliestDeparture() != null) {
+                departureFrom = current.firstDepartureAtOrAfter(byDeparture,
+                        ConnectionTable.minuteOf(criteria.getEarliestDeparture()));
+            }
+        }
+        int[] byArrival = null;
+        int arrivalTo = 0;
+        if (criteria.getArrivalCity() != null) {
+            byArrival = lookup(current.arrivalsAt(criteria.getArrivalCity()));
+            arrivalTo = criteria.getLatestArrival() == null ? byArrival.length
+                    : current.firstArrivalAfter(byArrival, ConnectionTable.minuteOf(criteria.getLatestArrival()));
+        }
+
+        if (byDeparture != null && (byArrival == null || byDeparture.length - departureFrom <= arrivalTo)) {
+            collect(current, byDeparture, departureFrom, byDeparture.length, filter, result);
+        } else if (byArrival != null) {
+            collect(current, byArrival, 0, arrivalTo, filter, result);
+        } else {
+            collect(current, null, 0, current.size(), filter, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the connections leaving the criteria's departure city that match the
+     * criteria, ordered by departure time of day.
+     */
+    public List<Connection> searchDepartures(SearchCriteria criteria) {
+        List<Connection> result = new ArrayList<>();
+        TimetableSnapshot data = snapshot.get();
+        if (data.getConnections() == null || criteria.getDepartureCity() == null) {
+            return result;
+        }
+
+        ConnectionTable current = data.getTable();
+        int[] rows = lookup(current.departuresFrom(criteria.getDepartureCity()));
+        collect(current, rows, 0, rows.length, rowFilter(current, criteria), result);
+        return result;
+    }
+
+    /**
+     * Returns the outgoing connections of a city ordered by departure time, or an
+     * empty list if the city is unknown or the repository is not indexed.
+     */
+    public List<Connection> getDepartures(City city) {
+        ConnectionTable current = snapshot.get().getTable();
+        return indexed ? toConnections(current, current.departuresFrom(city.getName())) : List.of();
+    }
+
+    /**
+     * Returns the incoming connections of a city ordered by arrival time, or an
+     * empty list if the city is unknown or the repository is not indexed.
+     */
+    public List<Connection> getArrivals(City city) {
+        ConnectionTable current = snapshot.get().getTable();
+        return indexed ? toConnections(current, current.arrivalsAt(city.getName())) : List.of();
+    }
+
+    /**
+     * Returns the week-expanded, departure-ordered view of the connections used by
+     * the scanning journey engines. Built on first use for each snapshot.
+     */
+    WeeklyTimetable getWeeklyTimetable() {
+        return snapshot.get().getWeeklyTimetable();
+    }
+
+    private static IntPredicate rowFilter(ConnectionTable current, SearchCriteria criteria) {
+        if (current.isExact()) {
+            return current.filter(criteria);
+        }
+        Predicate<Connection> filter = criteria.compile();
+        return row -> filter.test(current.connection(row));
+    }
+
+    private static void collect(ConnectionTable current, int[] rows, int from, int to, IntPredicate filter,
+            List<Connection> result) {
+        for (int i = from; i < to; i++) {
+            int row = rows == null ? i : rows[i];
+            if (filter.test(row)) {
+                result.add(current.connection(row));
+            }
+        }
+    }
+
+    private static int[] lookup(int[] rows) {
+        return rows == null ? new int[0] : rows;
+    }
+
+    private static List<Connection> toConnections(ConnectionTable current, int[] rows) {
+        if (rows == null) {
+            return List.of();
+        }
+        List<Connection> result = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            result.add(current.connection(row));
+        }
+        return Collections.unmodifiableList(result);
     }
 }
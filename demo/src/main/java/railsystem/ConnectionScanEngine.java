@@ -0,0 +1,328 @@
+package railsystem;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Journey engine based on the Connection Scan Algorithm. For every travel day it
+ * makes a single pass over the departure-ordered {@link WeeklyTimetable} and
+ * returns the earliest-arrival itinerary, with any number of transfers. Labels
+ * are kept per connection rather than per city, so the transfer window, the
+ * maximum transfers and the latest arrival are all honoured during the scan.
+ */
+final class ConnectionScanEngine implements JourneyEngine {
+    static final int MIN_TRANSFER_MINUTES = 20;
+    static final int MAX_TRANSFER_MINUTES = 24 * 60;
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    @Override
+    public List<Trip> findJourneys(ConnectionRepository repository, SearchCriteria criteria) {
+        if (criteria.getDepartureCity() == null || criteria.getArrivalCity() == null
+                || !City.exists(criteria.getDepartureCity()) || !City.exists(criteria.getArrivalCity())) {
+            return new ArrayList<>();
+        }
+
+        WeeklyTimetable timetable = repository.getWeeklyTimetable();
+        int origin = timetable.cityId(City.getInstance(criteria.getDepartureCity()));
+        int target = timetable.cityId(City.getInstance(criteria.getArrivalCity()));
+        if (origin < 0 || target < 0 || origin == target) {
+            return new ArrayList<>();
+        }
+
+        int earliestMinute = criteria.getEarliestDeparture() == null ? 0
+                : criteria.getEarliestDeparture().toSecondOfDay() / 60;
+        Set<DayOfWeek> travelDays = criteria.getTravelDays();
+        Predicate<Connection> firstLegFilter = firstLegFilter(criteria);
+        Predicate<Connection> legFilter = legFilter(criteria);
+
+        // Keyed by route ids so the same itinerary found on several days is kept once
+        Map<List<String>, Trip> journeys = new LinkedHashMap<>();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (travelDays != null && !travelDays.isEmpty() && !travelDays.contains(day)) {
+                continue;
+            }
+
+            int dayStart = (day.getValue() - 1) * WeeklyTimetable.MINUTES_PER_DAY;
+            List<Connection> legs = scan(timetable, criteria, firstLegFilter, legFilter, origin, target,
+                    dayStart + earliestMinute, dayStart + WeeklyTimetable.MINUTES_PER_DAY);
+            if (legs == null) {
+                continue;
+            }
+
+            List<String> key = legs.stream().map(Connection::getRouteId).toList();
+            if (!journeys.containsKey(key)) {
+                journeys.put(key, new Trip(legs));
+            }
+        }
+        return new ArrayList<>(journeys.values());
+    }
+
+    /**
+     * Earliest-arrival scan from {@code origin}, boarding the first leg between
+     * {@code start} and {@code originDeadline}. Returns the legs of the best
+     * itinerary to {@code target}, or null if it cannot be reached within a week.
+     */
+    private List<Connection> scan(WeeklyTimetable timetable, SearchCriteria criteria,
+            Predicate<Connection> firstLegFilter, Predicate<Connection> legFilter, int origin, int target, int start,
+            int originDeadline) {
+        Sweep sweep = new Sweep(timetable);
+        sweep.run(criteria, firstLegFilter, legFilter, origin, target, start, originDeadline,
+                start + WeeklyTimetable.MINUTES_PER_WEEK, maxLegs(criteria));
+        return sweep.legsTo(target);
+    }
+
+    /**
+     * One-to-all query: a single sweep from the criteria's departure city,
+     * leaving on {@code day} at or after the earliest departure, that returns
+     * the earliest arrival (fewest legs on ties) at every city reachable by
+     * {@code arriveBy} that day, or by journeys leaving within a week if it is
+     * null. Honours the leg filters and maximum transfers of the criteria; other
+     * fields are ignored. Cities are ordered by travel time.
+     */
+    List<ReachableCity> reachableCities(ConnectionRepository repository, SearchCriteria criteria, DayOfWeek day,
+            LocalTime arriveBy) {
+        List<ReachableCity> reachable = new ArrayList<>();
+        if (criteria.getDepartureCity() == null || !City.exists(criteria.getDepartureCity())) {
+            return reachable;
+        }
+
+        WeeklyTimetable timetable = repository.getWeeklyTimetable();
+        int origin = timetable.cityId(City.getInstance(criteria.getDepartureCity()));
+        if (origin < 0) {
+            return reachable;
+        }
+
+        int dayStart = (day.getValue() - 1) * WeeklyTimetable.MINUTES_PER_DAY;
+        int start = dayStart + (criteria.getEarliestDeparture() == null ? 0
+                : criteria.getEarliestDeparture().toSecondOfDay() / 60);
+        int horizon = arriveBy == null ? start + WeeklyTimetable.MINUTES_PER_WEEK
+                : dayStart + arriveBy.toSecondOfDay() / 60;
+        if (horizon < start) {
+            return reachable;
+        }
+
+        Predicate<Connection> legFilter = legFilter(criteria);
+        Sweep sweep = new Sweep(timetable);
+        sweep.run(criteria, legFilter, legFilter, origin, -1, start, dayStart + WeeklyTimetable.MINUTES_PER_DAY,
+                horizon, maxLegs(criteria));
+
+        // Without arriveBy, any arrival of a journey that departed within the week counts
+        int latestArrival = arriveBy == null ? UNREACHED - 1 : horizon;
+        for (int city = 0; city < timetable.cityCount(); city++) {
+            int arrival = sweep.arrival[city];
+            if (city == origin || arrival > latestArrival) {
+                continue;
+            }
+            reachable.add(new ReachableCity(timetable.city(city),
+                    DayOfWeek.MONDAY.plus(arrival / WeeklyTimetable.MINUTES_PER_DAY),
+                    LocalTime.ofSecondOfDay((arrival % WeeklyTimetable.MINUTES_PER_DAY) * 60L),
+                    Duration.ofMinutes(arrival - start),
+                    sweep.legCount[city] - 1));
+        }
+        reachable.sort(Comparator.comparing(ReachableCity::getTravelTime));
+        return reachable;
+    }
+
+    private static int maxLegs(SearchCriteria criteria) {
+        return criteria.getMaxTransfers() == null ? Integer.MAX_VALUE : criteria.getMaxTransfers() + 1;
+    }
+
+    /**
+     * Compiled filter for the first leg: the travel days and the per-leg
+     * constraints.
+     */
+    static Predicate<Connection> firstLegFilter(SearchCriteria criteria) {
+        SearchCriteria firstLeg = legCriteria(criteria);
+        firstLeg.setTravelDays(criteria.getTravelDays());
+        return firstLeg.compile();
+    }
+
+    /**
+     * Compiled filter for every later leg: train type and fare caps.
+     */
+    static Predicate<Connection> legFilter(SearchCriteria criteria) {
+        return legCriteria(criteria).compile();
+    }
+
+    private static SearchCriteria legCriteria(SearchCriteria criteria) {
+        return SearchCriteria.builder()
+                .preferredTrain(criteria.getPreferredTrain())
+                .firstClassRate(criteria.getFirstClassRate())
+                .secondClassRate(criteria.getSecondClassRate())
+                .build();
+    }
+
+    static boolean arrivesInTime(List<Connection> legs, SearchCriteria criteria) {
+        return arrivesInTime(legs.get(legs.size() - 1), criteria);
+    }
+
+    static boolean arrivesInTime(Connection lastLeg, SearchCriteria criteria) {
+        return criteria.getLatestArrival() == null
+                || lastLeg.getArrivalStop().getScheduledStop().compareTo(criteria.getLatestArrival()) <= 0;
+    }
+
+    /**
+     * Labels of one connection scan: for every event the fewest legs to be on
+     * it, and for every city its earliest arrival (fewest legs on ties).
+     */
+    private static final class Sweep {
+        private final WeeklyTimetable timetable;
+        private final int[] arrival;
+        private final int[] legCount;
+        private final int[] reachedBy;
+        private final int[] boardedFrom;
+        private final int[] eventLegs;
+        private final Arrivals[] arrivals;
+
+        private Sweep(WeeklyTimetable timetable) {
+            this.timetable = timetable;
+            this.arrival = new int[timetable.cityCount()];
+            this.legCount = new int[timetable.cityCount()];
+            this.reachedBy = new int[timetable.cityCount()];
+            this.boardedFrom = new int[timetable.size()];
+            this.eventLegs = new int[timetable.size()];
+            this.arrivals = new Arrivals[timetable.cityCount()];
+            Arrays.fill(arrival, UNREACHED);
+            Arrays.fill(reachedBy, -1);
+        }
+
+        /**
+         * Scans the events departing in [{@code start}, {@code horizon}]. With a
+         * target (not -1) the scan stops once nothing can improve its arrival,
+         * and arrivals at the target after the criteria's latest arrival are
+         * skipped.
+         */
+        private void run(SearchCriteria criteria, Predicate<Connection> firstLegFilter,
+                Predicate<Connection> legFilter, int origin, int target, int start, int originDeadline, int horizon,
+                int maxLegs) {
+            for (int event = timetable.firstDepartureAtOrAfter(start); event < timetable.size(); event++) {
+                int departure = timetable.departureTime(event);
+                if ((target >= 0 && departure >= arrival[target]) || departure > horizon) {
+                    break;
+                }
+
+                int from = timetable.departureCity(event);
+                int to = timetable.arrivalCity(event);
+                if (to == origin) {
+                    continue;
+                }
+
+                Connection connection = timetable.connection(event);
+                if (to == target && !arrivesInTime(connection, criteria)) {
+                    continue;
+                }
+
+                int previous;
+                int legs;
+                if (from == origin) {
+                    if (departure >= originDeadline || !firstLegFilter.test(connection)) {
+                        continue;
+                    }
+                    previous = -1;
+                    legs = 1;
+                } else {
+                    if (arrivals[from] == null || !legFilter.test(connection)) {
+                        continue;
+                    }
+                    previous = arrivals[from].fewestLegs(departure);
+                    if (previous < 0 || eventLegs[previous] >= maxLegs) {
+                        continue;
+                    }
+                    legs = eventLegs[previous] + 1;
+                }
+
+                boardedFrom[event] = previous;
+                eventLegs[event] = legs;
+                if (arrivals[to] == null) {
+                    arrivals[to] = new Arrivals();
+                }
+                arrivals[to].add(event);
+
+                int arrivalTime = timetable.arrivalTime(event);
+                if (arrivalTime < arrival[to] || (arrivalTime == arrival[to] && legs < legCount[to])) {
+                    arrival[to] = arrivalTime;
+                    legCount[to] = legs;
+                    reachedBy[to] = event;
+                }
+            }
+        }
+
+        private List<Connection> legsTo(int city) {
+            if (reachedBy[city] < 0) {
+                return null;
+            }
+
+            LinkedList<Connection> legs = new LinkedList<>();
+            for (int event = reachedBy[city]; event >= 0; event = boardedFrom[event]) {
+                legs.addFirst(timetable.connection(event));
+            }
+            return legs;
+        }
+
+        /**
+         * The reached events arriving at one city, in arrival order. Departures
+         * are scanned in time order, so arrivals that are more than the maximum
+         * transfer time behind the current departure are dropped for good.
+         */
+        private final class Arrivals {
+            private int[] events = new int[8];
+            private int head;
+            private int tail;
+
+            private void add(int event) {
+                if (tail == events.length) {
+                    if (head > events.length / 2) {
+                        System.arraycopy(events, head, events, 0, tail - head);
+                    } else {
+                        events = Arrays.copyOf(events, events.length * 2);
+                        System.arraycopy(events, head, events, 0, tail - head);
+                    }
+                    tail -= head;
+                    head = 0;
+                }
+
+                int time = timetable.arrivalTime(event);
+                int position = tail;
+                while (position > head && timetable.arrivalTime(events[position - 1]) > time) {
+                    position--;
+                }
+                System.arraycopy(events, position, events, position + 1, tail - position);
+                events[position] = event;
+                tail++;
+            }
+
+            /**
+             * The event with the fewest legs, earliest on ties, that arrives
+             * within the transfer window before {@code departure}, or -1.
+             */
+            private int fewestLegs(int departure) {
+                while (head < tail && departure - timetable.arrivalTime(events[head]) > MAX_TRANSFER_MINUTES) {
+                    head++;
+                }
+
+                int best = -1;
+                for (int i = head; i < tail; i++) {
+                    int event = events[i];
+                    if (departure < timetable.arrivalTime(event) + MIN_TRANSFER_MINUTES) {
+                        break;
+                    }
+                    if (best < 0 || eventLegs[event] < eventLegs[best]) {
+                        best = event;
+                    }
+                }
+                return best;
+            }
+        }
+    }
+}
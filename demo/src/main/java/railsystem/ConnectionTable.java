@@ -0,0 +1,254 @@
+package railsystem;
+
+import java.math.BigDecimal;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Column-per-field copy of the connections, one row per connection: interned
+ * city and train type ids, minutes of day, the day mask and fares in cents.
+ * Searches filter rows on these primitive arrays and only look up the
+ * {@link Connection} objects of the rows that match.
+ */
+final class ConnectionTable {
+    private static final long NANOS_PER_MINUTE = 60_000_000_000L;
+
+    private final Connection[] connections;
+    private final int[] departureCities;
+    private final int[] arrivalCities;
+    private final short[] departureMinutes;
+    private final short[] arrivalMinutes;
+    private final boolean[] nextDay;
+    private final byte[] dayMasks;
+    private final int[] firstClassFares;
+    private final int[] secondClassFares;
+    private final int[] trainTypes;
+
+    private final Map<String, Integer> cityIds = new HashMap<>();
+    private final Map<String, Integer> trainTypeIds = new HashMap<>();
+    private final int[][] departuresFrom;
+    private final int[][] arrivalsAt;
+    private final boolean exact;
+
+    ConnectionTable(List<Connection> source) {
+        int size = source.size();
+        this.connections = source.toArray(new Connection[0]);
+        this.departureCities = new int[size];
+        this.arrivalCities = new int[size];
+        this.departureMinutes = new short[size];
+        this.arrivalMinutes = new short[size];
+        this.nextDay = new boolean[size];
+        this.dayMasks = new byte[size];
+        this.firstClassFares = new int[size];
+        this.secondClassFares = new int[size];
+        this.trainTypes = new int[size];
+
+        boolean allExact = true;
+        for (int row = 0; row < size; row++) {
+            Connection connection = connections[row];
+            departureCities[row] = intern(cityIds, connection.getDepartureStop().getCity().getName());
+            arrivalCities[row] = intern(cityIds, connection.getArrivalStop().getCity().getName());
+            departureMinutes[row] = (short) WeeklyTimetable.minuteOfDay(connection.getDepartureStop());
+            arrivalMinutes[row] = (short) WeeklyTimetable.minuteOfDay(connection.getArrivalStop());
+            nextDay[row] = connection.getArrivalStop().isNextDay();
+            dayMasks[row] = (byte) connection.getSchedule().getDayMask();
+            trainTypes[row] = intern(trainTypeIds, connection.getTrain().getTrainType());
+
+            Integer firstClass = exactCents(connection.getTicketRates().getFirstClass());
+            Integer secondClass = exactCents(connection.getTicketRates().getSecondClass());
+            firstClassFares[row] = firstClass == null ? 0 : firstClass;
+            secondClassFares[row] = secondClass == null ? 0 : secondClass;
+            allExact &= firstClass != null && secondClass != null
+                    && isWholeMinute(connection.getDepartureStop().getScheduledStop())
+                    && isWholeMinute(connection.getArrivalStop().getScheduledStop());
+        }
+        this.exact = allExact;
+
+        this.departuresFrom = groupRows(departureCities, cityIds.size(), true);
+        this.arrivalsAt = groupRows(arrivalCities, cityIds.size(), false);
+    }
+
+    /**
+     * False if some time has seconds or some fare does not fit an int of cents;
+     * the columns are then lossy and searches must use the connection objects.
+     */
+    boolean isExact() {
+        return exact;
+    }
+
+    int size() {
+        return connections.length;
+    }
+
+    Connection connection(int row) {
+        return connections[row];
+    }
+
+    /**
+     * Rows leaving the named city ordered by departure time, or null if no
+     * connection leaves it.
+     */
+    int[] departuresFrom(String city) {
+        Integer id = city == null ? null : cityIds.get(city);
+        return id == null ? null : departuresFrom[id];
+    }
+
+    /**
+     * Rows arriving in the named city ordered by arrival time of day, or null if
+     * no connection arrives there.
+     */
+    int[] arrivalsAt(String city) {
+        Integer id = city == null ? null : cityIds.get(city);
+        return id == null ? null : arrivalsAt[id];
+    }
+
+    /**
+     * Index in {@code rows} (ordered by departure) of the first row departing at
+     * or after {@code minute}.
+     */
+    int firstDepartureAtOrAfter(int[] rows, int minute) {
+        int low = 0;
+        int high = rows.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (departureMinutes[rows[mid]] < minute) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Index in {@code rows} (ordered by arrival) of the first row arriving after
+     * {@code minute}.
+     */
+    int firstArrivalAfter(int[] rows, int minute) {
+        int low = 0;
+        int high = rows.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (arrivalMinutes[rows[mid]] <= minute) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compiles the criteria into a test on row numbers that reads only the
+     * primitive columns. Accepts the same rows as {@link SearchCriteria#matches}
+     * on an exact table.
+     */
+    IntPredicate filter(SearchCriteria criteria) {
+        int departureCity = -1;
+        if (criteria.getDepartureCity() != null) {
+            Integer id = cityIds.get(criteria.getDepartureCity());
+            if (id == null) {
+                return row -> false;
+            }
+            departureCity = id;
+        }
+        int arrivalCity = -1;
+        if (criteria.getArrivalCity() != null) {
+            Integer id = cityIds.get(criteria.getArrivalCity());
+            if (id == null) {
+                return row -> false;
+            }
+            arrivalCity = id;
+        }
+        int trainType = -1;
+        if (criteria.getPreferredTrain() != null) {
+            Integer id = trainTypeIds.get(criteria.getPreferredTrain());
+            if (id == null) {
+                return row -> false;
+            }
+            trainType = id;
+        }
+
+        // Connection times are whole minutes, so round the bounds inwards
+        LocalTime earliest = criteria.getEarliestDeparture();
+        long earliestMinute = earliest == null ? 0 : firstMinuteAtOrAfter(earliest);
+        LocalTime latest = criteria.getLatestArrival();
+        long latestMinute = latest == null ? Long.MAX_VALUE : minuteOf(latest);
+        int nextDayFlag = criteria.getNextDay() == null ? -1 : criteria.getNextDay() ? 1 : 0;
+        int dayMask = criteria.getTravelDays() == null ? 0 : TrainSchedule.maskOf(criteria.getTravelDays());
+        // A matching row is a whole trip, so the trip budgets cap its fares as well
+        long firstClassCap = Math.min(capInCents(criteria.getFirstClassRate()),
+                capInCents(criteria.getMaxTotalFirstClassRate()));
+        long secondClassCap = Math.min(capInCents(criteria.getSecondClassRate()),
+                capInCents(criteria.getMaxTotalSecondClassRate()));
+
+        int departureCityId = departureCity;
+        int arrivalCityId = arrivalCity;
+        int trainTypeId = trainType;
+        return row -> (departureCityId < 0 || departureCities[row] == departureCityId)
+                && (arrivalCityId < 0 || arrivalCities[row] == arrivalCityId)
+                && departureMinutes[row] >= earliestMinute
+                && arrivalMinutes[row] <= latestMinute
+                && (nextDayFlag < 0 || nextDay[row] == (nextDayFlag == 1))
+                && (trainTypeId < 0 || trainTypes[row] == trainTypeId)
+                && (dayMasks[row] & dayMask) == dayMask
+                && firstClassFares[row] <= firstClassCap
+                && secondClassFares[row] <= secondClassCap;
+    }
+
+    /**
+     * Minute of day a time falls in, seconds dropped.
+     */
+    static int minuteOf(LocalTime time) {
+        return (int) (time.toNanoOfDay() / NANOS_PER_MINUTE);
+    }
+
+    /**
+     * First whole minute of day that is not before {@code time}.
+     */
+    static int firstMinuteAtOrAfter(LocalTime time) {
+        return (int) ((time.toNanoOfDay() + NANOS_PER_MINUTE - 1) / NANOS_PER_MINUTE);
+    }
+
+    private static long capInCents(BigDecimal rate) {
+        return rate == null ? Long.MAX_VALUE : Money.floorCents(rate);
+    }
+
+    private static Integer exactCents(Money amount) {
+        long cents = amount.getCents();
+        return cents == (int) cents ? Integer.valueOf((int) cents) : null;
+    }
+
+    private static boolean isWholeMinute(LocalTime time) {
+        return time.getSecond() == 0 && time.getNano() == 0;
+    }
+
+    private static int intern(Map<String, Integer> ids, String value) {
+        return ids.computeIfAbsent(value, v -> ids.size());
+    }
+
+    private int[][] groupRows(int[] cityColumn, int cityCount, boolean departures) {
+        List<List<Integer>> byCity = new ArrayList<>();
+        for (int city = 0; city < cityCount; city++) {
+            byCity.add(new ArrayList<>());
+        }
+        for (int row = 0; row < cityColumn.length; row++) {
+            byCity.get(cityColumn[row]).add(row);
+        }
+
+        int[][] groups = new int[cityCount][];
+        for (int city = 0; city < cityCount; city++) {
+            List<Integer> rows = byCity.get(city);
+            // Stable sort, so rows with the same time keep their original order
+            rows.sort(departures
+                    ? (a, b) -> Integer.compare(departureMinutes[a], departureMinutes[b])
+                    : (a, b) -> Integer.compare(arrivalMinutes[a], arrivalMinutes[b]));
+            groups[city] = rows.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return groups;
+    }
+}
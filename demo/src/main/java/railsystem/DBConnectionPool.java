@@ -0,0 +1,164 @@
+package railsystem;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Long-lived SQLite connections for {@link DBManager}: one writer, used by one
+ * caller at a time, and a few read-only readers shared through a queue. The
+ * database runs in WAL mode, so readers see the last committed state and never
+ * wait for the writer. Every connection is opened once and tuned with the
+ * pragmas below, instead of opening the file and parsing the schema per call.
+ * Once the pool is closed, every call fails with an {@link SQLException}.
+ */
+final class DBConnectionPool implements AutoCloseable {
+    // Negative sizes are in KiB: 16 MB of page cache per connection
+    private static final int CACHE_SIZE_KIB = 16_000;
+    private static final int BUSY_TIMEOUT_MILLIS = 5_000;
+
+    /**
+     * Work to run on a pooled connection. It must not close the connection.
+     */
+    interface Work<T> {
+        T run(java.sql.Connection conn) throws SQLException;
+    }
+
+    private final java.sql.Connection writer;
+    private final ReentrantLock writerLock = new ReentrantLock();
+    private final BlockingQueue<java.sql.Connection> readers;
+    private final List<java.sql.Connection> all = new ArrayList<>();
+    private volatile boolean closed;
+
+    DBConnectionPool(String url, int readerCount) throws SQLException {
+        if (readerCount < 1) {
+            throw new IllegalArgumentException("At least one reader is required");
+        }
+        try {
+            writer = open(url);
+            try (Statement stmt = writer.createStatement()) {
+                // Stored in the database file, so setting it once on the writer is enough
+                stmt.execute("PRAGMA journal_mode = WAL");
+                // Every commit is synced, so a committed booking survives a power loss too
+                stmt.execute("PRAGMA synchronous = FULL");
+            }
+            readers = new ArrayBlockingQueue<>(readerCount);
+            for (int i = 0; i < readerCount; i++) {
+                java.sql.Connection reader = open(url);
+                try (Statement stmt = reader.createStatement()) {
+                    stmt.execute("PRAGMA query_only = ON");
+                }
+                readers.add(reader);
+            }
+        } catch (SQLException e) {
+            closeConnections();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs {@code work} on the writer connection, waiting while another write
+     * is in progress. A transaction the work leaves open is rolled back.
+     */
+    <T> T write(Work<T> work) throws SQLException {
+        writerLock.lock();
+        try {
+            checkOpen();
+            return run(writer, work);
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    /**
+     * Runs {@code work} on a reader connection, waiting while all readers are in
+     * use.
+     */
+    <T> T read(Work<T> work) throws SQLException {
+        java.sql.Connection reader;
+        try {
+            reader = readers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        try {
+            checkOpen();
+            return run(reader, work);
+        } finally {
+            readers.add(reader);
+        }
+    }
+
+    /**
+     * Rejects new calls, waits for those in progress and closes the
+     * connections.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        writerLock.lock();
+        try {
+            List<java.sql.Connection> idle = new ArrayList<>();
+            boolean interrupted = false;
+            while (idle.size() < all.size() - 1) {
+                try {
+                    idle.add(readers.take());
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            closeConnections();
+            // Callers waiting for a reader take a closed one and fail in checkOpen
+            readers.addAll(idle);
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    private void checkOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("The database connection pool is closed");
+        }
+    }
+
+    private void closeConnections() {
+        for (java.sql.Connection conn : all) {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                System.out.println("Error closing database connection: " + e.getMessage());
+            }
+        }
+        all.clear();
+    }
+
+    private java.sql.Connection open(String url) throws SQLException {
+        java.sql.Connection conn = DriverManager.getConnection(url);
+        all.add(conn);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA cache_size = -" + CACHE_SIZE_KIB);
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MILLIS);
+        }
+        return conn;
+    }
+
+    private static <T> T run(java.sql.Connection conn, Work<T> work) throws SQLException {
+        try {
+            return work.run(conn);
+        } finally {
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+}
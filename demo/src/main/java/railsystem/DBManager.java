@@ -1,28 +1,85 @@
 package railsystem;
 
 import java.io.File;
-import java.math.BigDecimal;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.DayOfWeek;
 
-public class DBManager {
+public class DBManager implements AutoCloseable {
+    public static final int DEFAULT_READERS = 4;
+
     private final String url;
+    private final int readers;
+    private volatile DBConnectionPool pool;
+    private volatile BookingWriter bookingWriter;
+    private volatile boolean closed;
 
     public DBManager(String url) {
+        this(url, DEFAULT_READERS);
+    }
+
+    /**
+     * @param readers number of read-only connections kept open next to the
+     *                single writer connection
+     */
+    public DBManager(String url, int readers) {
         this.url = url;
+        this.readers = readers;
         ensureDatabaseDirectoryExists();
         createTables();
     }
 
+    /**
+     * The connection pool, opened on first use so a missing database only fails
+     * the calls that need it. Fails once the manager is closed.
+     */
+    private DBConnectionPool pool() throws SQLException {
+        DBConnectionPool current = pool;
+        if (current == null) {
+            synchronized (this) {
+                if (closed) {
+                    throw new SQLException("The database is closed");
+                }
+                current = pool;
+                if (current == null) {
+                    current = new DBConnectionPool(url, readers);
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Stops the booking writer, if any, and closes the pooled connections. Calls
+     * in progress finish first; later calls fail.
+     */
+    @Override
+    public void close() {
+        BookingWriter writer;
+        synchronized (this) {
+            closed = true;
+            writer = bookingWriter;
+            bookingWriter = null;
+        }
+        stop(writer);
+        synchronized (this) {
+            if (pool != null) {
+                pool.close();
+                pool = null;
+            }
+        }
+    }
+
     private void ensureDatabaseDirectoryExists() {
         if (url.startsWith("jdbc:sqlite:")) {
             String dbPath = url.substring("jdbc:sqlite:".length());
@@ -106,14 +163,18 @@ public class DBManager {
                 )
                 """;
 
-        try (java.sql.Connection conn = DriverManager.getConnection(url);
-                Statement stmt = conn.createStatement()) {
-            stmt.execute(createConnectionsTable);
-            stmt.execute(createTripsTable);
-            stmt.execute(createTripConnectionsTable);
-            stmt.execute(createTravellersTable);
-            stmt.execute(createBookingsTable);
-            stmt.execute(createTicketsTable);
+        try {
+            pool().write(conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(createConnectionsTable);
+                    stmt.execute(createTripsTable);
+                    stmt.execute(createTripConnectionsTable);
+                    stmt.execute(createTravellersTable);
+                    stmt.execute(createBookingsTable);
+                    stmt.execute(createTicketsTable);
+                }
+                return null;
+            });
         } catch (SQLException e) {
             System.out.println("Error creating tables: " + e.getMessage());
         }
@@ -128,22 +189,28 @@ public class DBManager {
                 ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
                 """;
 
-        try (java.sql.Connection conn = DriverManager.getConnection(url);
-                PreparedStatement pstmt = conn.prepareStatement(insertConnection)) {
-            for (railsystem.Connection connData : connections) {
-                pstmt.setString(1, connData.getRouteId());
-                pstmt.setString(2, connData.getTrain().getTrainType());
-                pstmt.setString(3, connData.getSchedule().getOperatingDays().toString());
-                pstmt.setBigDecimal(4, connData.getTicketRates().getFirstClass());
-                pstmt.setBigDecimal(5, connData.getTicketRates().getSecondClass());
-                pstmt.setString(6, connData.getDepartureStop().getCity().getName());
-                pstmt.setString(7, connData.getDepartureStop().getScheduledStop().toString());
-                pstmt.setString(8, connData.getArrivalStop().getCity().getName());
-                pstmt.setString(9, connData.getArrivalStop().getScheduledStop().toString());
-                pstmt.setBoolean(10, connData.getArrivalStop().isNextDay());
-                pstmt.addBatch();
-            }
-            pstmt.executeBatch();
+        try {
+            pool().write(conn -> {
+                conn.setAutoCommit(false);
+                try (PreparedStatement pstmt = conn.prepareStatement(insertConnection)) {
+                    for (railsystem.Connection connData : connections) {
+                        pstmt.setString(1, connData.getRouteId());
+                        pstmt.setString(2, connData.getTrain().getTrainType());
+                        pstmt.setString(3, connData.getSchedule().getOperatingDays().toString());
+                        pstmt.setBigDecimal(4, connData.getTicketRates().getFirstClass().toBigDecimal());
+                        pstmt.setBigDecimal(5, connData.getTicketRates().getSecondClass().toBigDecimal());
+                        pstmt.setString(6, connData.getDepartureStop().getCity().getName());
+                        pstmt.setString(7, connData.getDepartureStop().getScheduledStop().toString());
+                        pstmt.setString(8, connData.getArrivalStop().getCity().getName());
+                        pstmt.setString(9, connData.getArrivalStop().getScheduledStop().toString());
+                        pstmt.setBoolean(10, connData.getArrivalStop().isNextDay());
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+                conn.commit();
+                return null;
+            });
         } catch (SQLException e) {
             System.out.println("Error saving connections: " + e.getMessage());
         }
@@ -160,35 +227,35 @@ public class DBManager {
                 VALUES (?, ?, ?)
                 """;
 
-        try (java.sql.Connection conn = DriverManager.getConnection(url)) {
-            conn.setAutoCommit(false);
+        try {
+            pool().write(conn -> {
+                conn.setAutoCommit(false);
 
-            try (PreparedStatement tripStmt = conn.prepareStatement(insertTrip);
-                    PreparedStatement connStmt = conn.prepareStatement(insertTripConnection)) {
+                try (PreparedStatement tripStmt = conn.prepareStatement(insertTrip);
+                        PreparedStatement connStmt = conn.prepareStatement(insertTripConnection)) {
 
-                // Save trip
-                tripStmt.setLong(1, trip.getId());
-                tripStmt.setBigDecimal(2, trip.getTotalFirstClassRate());
-                tripStmt.setBigDecimal(3, trip.getTotalSecondClassRate());
-                tripStmt.setLong(4, trip.getTotalDuration().toMinutes());
-                tripStmt.executeUpdate();
+                    // Save trip
+                    tripStmt.setLong(1, trip.getId());
+                    tripStmt.setBigDecimal(2, trip.getTotalFirstClassRate().toBigDecimal());
+                    tripStmt.setBigDecimal(3, trip.getTotalSecondClassRate().toBigDecimal());
+                    tripStmt.setLong(4, trip.getTotalDuration().toMinutes());
+                    tripStmt.executeUpdate();
 
-                // Save connections in order
-                int order = 1;
-                for (Connection connection : trip.getConnections()) {
-                    int connectionId = getConnectionId(connection.getRouteId());
-                    connStmt.setLong(1, trip.getId());
-                    connStmt.setInt(2, connectionId);
-                    connStmt.setInt(3, order++);
-                    connStmt.addBatch();
-                }
-                connStmt.executeBatch();
+                    // Save connections in order
+                    int order = 1;
+                    for (Connection connection : trip.getConnections()) {
+                        int connectionId = getConnectionId(conn, connection.getRouteId());
+                        connStmt.setLong(1, trip.getId());
+                        connStmt.setInt(2, connectionId);
+                        connStmt.setInt(3, order++);
+                        connStmt.addBatch();
+                    }
+                    connStmt.executeBatch();
 
-                conn.commit();
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            }
+                    conn.commit();
+                }
+                return null;
+            });
         } catch (SQLException e) {
             System.out.println("Error saving trip: " + e.getMessage());
         }
@@ -200,18 +267,134 @@ public class DBManager {
                 VALUES (?, ?, ?)
                 """;
 
-        try (java.sql.Connection conn = DriverManager.getConnection(url);
-                PreparedStatement pstmt = conn.prepareStatement(insertTraveller)) {
-            pstmt.setString(1, travellerId);
-            pstmt.setString(2, firstName);
-            pstmt.setString(3, lastName);
-            pstmt.executeUpdate();
+        try {
+            pool().write(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(insertTraveller)) {
+                    pstmt.setString(1, travellerId);
+                    pstmt.setString(2, firstName);
+                    pstmt.setString(3, lastName);
+                    return pstmt.executeUpdate();
+                }
+            });
         } catch (SQLException e) {
             System.out.println("Error saving traveller: " + e.getMessage());
         }
     }
 
+    /**
+     * Saves the booking, through the group-commit writer if one is running.
+     *
+     * @throws PersistenceException if the booking could not be saved
+     */
     public void saveBooking(Booking booking) {
+        BookingWriter writer = bookingWriter;
+        if (writer != null) {
+            // Wait for the group commit, so the caller sees the same outcome as below
+            try {
+                writer.submit(booking).join();
+                return;
+            } catch (CompletionException e) {
+                // A writer stopped meanwhile did not take the booking; save it below instead
+                if (!(e.getCause() instanceof IllegalStateException)) {
+                    throw bookingFailed(e.getCause());
+                }
+            }
+        }
+
+        try {
+            pool().write(conn -> {
+                conn.setAutoCommit(false);
+                insertBooking(conn, booking);
+                conn.commit();
+                return null;
+            });
+        } catch (SQLException e) {
+            throw bookingFailed(e);
+        }
+    }
+
+    private static PersistenceException bookingFailed(Throwable cause) {
+        System.out.println("Error saving booking: " + cause.getMessage());
+        return new PersistenceException("The booking could not be saved", cause);
+    }
+
+    /**
+     * Queues the booking for the group-commit writer started with
+     * {@link #startBookingWriter}. The future completes once the booking is
+     * durable, or exceptionally if it could not be saved. Without a writer the
+     * booking is saved right away.
+     */
+    public CompletableFuture<Void> saveBookingAsync(Booking booking) {
+        BookingWriter writer = bookingWriter;
+        if (writer == null) {
+            try {
+                saveBooking(booking);
+            } catch (PersistenceException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        return writer.submit(booking);
+    }
+
+    /**
+     * Saves bookings through a background writer that commits up to
+     * {@code maxBatchSize} of them per transaction, waiting at most
+     * {@code maxDelay} for a batch to fill.
+     */
+    public synchronized void startBookingWriter(int maxBatchSize, Duration maxDelay) {
+        if (closed) {
+            throw new IllegalStateException("The database is closed");
+        }
+        if (bookingWriter != null) {
+            throw new IllegalStateException("Booking writer already started");
+        }
+        // Open the pool first, so the writer thread never needs this monitor
+        try {
+            pool();
+        } catch (SQLException e) {
+            throw new PersistenceException("The database could not be opened", e);
+        }
+        bookingWriter = new BookingWriter(this, maxBatchSize, maxDelay);
+    }
+
+    /**
+     * Writes the queued bookings, stops the background writer and prints its
+     * statistics. Later bookings are saved synchronously again.
+     */
+    public void stopBookingWriter() {
+        BookingWriter writer;
+        synchronized (this) {
+            writer = bookingWriter;
+            bookingWriter = null;
+        }
+        stop(writer);
+    }
+
+    /**
+     * Waits for the writer outside this manager's monitor, which callers
+     * saving synchronously meanwhile may need.
+     */
+    private static void stop(BookingWriter writer) {
+        if (writer == null) {
+            return;
+        }
+        writer.close();
+        System.out.println("[INFO] " + writer);
+    }
+
+    /**
+     * Runs {@code work} on the single writer connection.
+     */
+    <T> T write(DBConnectionPool.Work<T> work) throws SQLException {
+        return pool().write(work);
+    }
+
+    /**
+     * Inserts the booking with its travellers, trip and tickets in the
+     * transaction open on {@code conn}; the caller commits.
+     */
+    void insertBooking(java.sql.Connection conn, Booking booking) throws SQLException {
         String insertBooking = "INSERT INTO bookings DEFAULT VALUES";
         String insertTraveller = """
                 INSERT OR IGNORE INTO travellers (id, first_name, last_name)
@@ -230,71 +413,58 @@ public class DBManager {
                 VALUES (?, ?, ?, ?)
                 """;
 
-        try (java.sql.Connection conn = DriverManager.getConnection(url)) {
-            conn.setAutoCommit(false);
-
-            try (PreparedStatement bookingStmt = conn.prepareStatement(insertBooking, Statement.RETURN_GENERATED_KEYS);
-                    PreparedStatement travellerStmt = conn.prepareStatement(insertTraveller);
-                    PreparedStatement tripStmt = conn.prepareStatement(insertTrip);
-                    PreparedStatement connStmt = conn.prepareStatement(insertTripConnection);
-                    PreparedStatement ticketStmt = conn.prepareStatement(insertTicket)) {
-
-                // Create booking
-                bookingStmt.executeUpdate();
-                var keys = bookingStmt.getGeneratedKeys();
-                if (!keys.next()) {
-                    throw new SQLException("Failed to get booking ID");
-                }
-                int bookingId = keys.getInt(1);
+        try (PreparedStatement bookingStmt = conn.prepareStatement(insertBooking, Statement.RETURN_GENERATED_KEYS);
+                PreparedStatement travellerStmt = conn.prepareStatement(insertTraveller);
+                PreparedStatement tripStmt = conn.prepareStatement(insertTrip);
+                PreparedStatement connStmt = conn.prepareStatement(insertTripConnection);
+                PreparedStatement ticketStmt = conn.prepareStatement(insertTicket)) {
+
+            // Create booking
+            bookingStmt.executeUpdate();
+            var keys = bookingStmt.getGeneratedKeys();
+            if (!keys.next()) {
+                throw new SQLException("Failed to get booking ID");
+            }
+            int bookingId = keys.getInt(1);
 
-                // Save each ticket and related data
-                for (Ticket ticket : booking.getTickets()) {
-                    Traveller traveller = ticket.getTraveller();
-                    Trip trip = ticket.getTrip();
+            // Save each ticket and related data
+            for (Ticket ticket : booking.getTickets()) {
+                Traveller traveller = ticket.getTraveller();
+                Trip trip = ticket.getTrip();
 
-                    // Save traveller (INSERT OR IGNORE prevents duplicates)
-                    travellerStmt.setString(1, traveller.getId());
-                    travellerStmt.setString(2, traveller.getFirstName());
-                    travellerStmt.setString(3, traveller.getLastName());
-                    travellerStmt.executeUpdate();
+                // Save traveller (INSERT OR IGNORE prevents duplicates)
+                travellerStmt.setString(1, traveller.getId());
+                travellerStmt.setString(2, traveller.getFirstName());
+                travellerStmt.setString(3, traveller.getLastName());
+                travellerStmt.executeUpdate();
 
-                    // Save trip if not already exists (INSERT OR IGNORE)
-                    tripStmt.setLong(1, trip.getId());
-                    tripStmt.setBigDecimal(2, trip.getTotalFirstClassRate());
-                    tripStmt.setBigDecimal(3, trip.getTotalSecondClassRate());
-                    tripStmt.setLong(4, trip.getTotalDuration().toMinutes());
-                    tripStmt.executeUpdate();
+                // Save trip if not already exists (INSERT OR IGNORE)
+                tripStmt.setLong(1, trip.getId());
+                tripStmt.setBigDecimal(2, trip.getTotalFirstClassRate().toBigDecimal());
+                tripStmt.setBigDecimal(3, trip.getTotalSecondClassRate().toBigDecimal());
+                tripStmt.setLong(4, trip.getTotalDuration().toMinutes());
+                tripStmt.executeUpdate();
 
-                    // Save trip connections
-                    int order = 1;
-                    for (Connection connection : trip.getConnections()) {
-                        int connectionId = getConnectionId(connection.getRouteId());
-                        connStmt.setLong(1, trip.getId());
-                        connStmt.setInt(2, connectionId);
-                        connStmt.setInt(3, order++);
-                        connStmt.addBatch();
-                    }
-                    connStmt.executeBatch();
-                    connStmt.clearBatch();
-
-                    // Save ticket
-                    ticketStmt.setInt(1, bookingId);
-                    ticketStmt.setLong(2, trip.getId());
-                    ticketStmt.setString(3, traveller.getId());
-                    ticketStmt.setString(4, ticket.getClassRate());
-                    ticketStmt.addBatch();
+                // Save trip connections
+                int order = 1;
+                for (Connection connection : trip.getConnections()) {
+                    int connectionId = getConnectionId(conn, connection.getRouteId());
+                    connStmt.setLong(1, trip.getId());
+                    connStmt.setInt(2, connectionId);
+                    connStmt.setInt(3, order++);
+                    connStmt.addBatch();
                 }
-                ticketStmt.executeBatch();
-
-                conn.commit();
-                System.out.println("✓ Booking saved successfully!");
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
+                connStmt.executeBatch();
+                connStmt.clearBatch();
+
+                // Save ticket
+                ticketStmt.setInt(1, bookingId);
+                ticketStmt.setLong(2, trip.getId());
+                ticketStmt.setString(3, traveller.getId());
+                ticketStmt.setString(4, ticket.getClassRate());
+                ticketStmt.addBatch();
             }
-        } catch (SQLException e) {
-            System.out.println("Error saving booking: " + e.getMessage());
-            e.printStackTrace();
+            ticketStmt.executeBatch();
         }
     }
 
@@ -307,26 +477,30 @@ public class DBManager {
                 FROM connections
                 """;
 
-        try (java.sql.Connection conn = DriverManager.getConnection(url);
-                Statement stmt = conn.createStatement();
-                var rs = stmt.executeQuery(selectConnections)) {
-
-            while (rs.next()) {
-                String operatingDaysStr = rs.getString("operating_days");
-
-                railsystem.Connection connection = railsystem.Connection.of(
-                        rs.getString("route_id"),
-                        rs.getString("train_type"),
-                        parseOperatingDaysFromString(operatingDaysStr),
-                        rs.getBigDecimal("first_class_rate"),
-                        rs.getBigDecimal("second_class_rate"),
-                        rs.getString("departure_city"),
-                        java.time.LocalTime.parse(rs.getString("departure_time")),
-                        rs.getString("arrival_city"),
-                        java.time.LocalTime.parse(rs.getString("arrival_time")),
-                        rs.getBoolean("next_day"));
-                connections.add(connection);
-            }
+        try {
+            pool().read(conn -> {
+                try (Statement stmt = conn.createStatement();
+                        var rs = stmt.executeQuery(selectConnections)) {
+
+                    while (rs.next()) {
+                        String operatingDaysStr = rs.getString("operating_days");
+
+                        railsystem.Connection connection = railsystem.Connection.of(
+                                rs.getString("route_id"),
+                                rs.getString("train_type"),
+                                parseOperatingDaysFromString(operatingDaysStr),
+                                rs.getBigDecimal("first_class_rate"),
+                                rs.getBigDecimal("second_class_rate"),
+                                rs.getString("departure_city"),
+                                java.time.LocalTime.parse(rs.getString("departure_time")),
+                                rs.getString("arrival_city"),
+                                java.time.LocalTime.parse(rs.getString("arrival_time")),
+                                rs.getBoolean("next_day"));
+                        connections.add(connection);
+                    }
+                }
+                return null;
+            });
         } catch (SQLException e) {
             System.out.println("Error loading connections: " + e.getMessage());
         }
@@ -344,12 +518,13 @@ public class DBManager {
 
     public boolean hasConnections() {
         String countQuery = "SELECT COUNT(*) AS total FROM connections";
-        try (java.sql.Connection conn = DriverManager.getConnection(url);
-                Statement stmt = conn.createStatement();
-                var rs = stmt.executeQuery(countQuery)) {
-            if (rs.next()) {
-                return rs.getInt("total") > 0;
-            }
+        try {
+            return pool().read(conn -> {
+                try (Statement stmt = conn.createStatement();
+                        var rs = stmt.executeQuery(countQuery)) {
+                    return rs.next() && rs.getInt("total") > 0;
+                }
+            });
         } catch (SQLException e) {
             System.out.println("Error checking connections: " + e.getMessage());
         }
@@ -358,20 +533,21 @@ public class DBManager {
 
     public boolean travellerExists(String travellerId) {
         String query = "SELECT COUNT(*) AS total FROM travellers WHERE id = ?";
-        try (java.sql.Connection conn = DriverManager.getConnection(url);
-                PreparedStatement pstmt = conn.prepareStatement(query)) {
-            pstmt.setString(1, travellerId);
-            var rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt("total") > 0;
-            }
+        try {
+            return pool().read(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                    pstmt.setString(1, travellerId);
+                    var rs = pstmt.executeQuery();
+                    return rs.next() && rs.getInt("total") > 0;
+                }
+            });
         } catch (SQLException e) {
             System.out.println("Error checking traveller existence: " + e.getMessage());
         }
         return false;
     }
 
-    private List<Connection> getTripConnections(long tripId) throws SQLException {
+    private List<Connection> getTripConnections(java.sql.Connection conn, long tripId) throws SQLException {
         List<Connection> connections = new ArrayList<>();
 
         String query = """
@@ -393,8 +569,7 @@ public class DBManager {
                 ORDER BY tc.sequence_order
                 """;
 
-        try (java.sql.Connection conn = DriverManager.getConnection(url);
-                PreparedStatement pstmt = conn.prepareStatement(query)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
 
             pstmt.setLong(1, tripId);
             var rs = pstmt.executeQuery();
@@ -440,34 +615,36 @@ public class DBManager {
                 ORDER BY t.ticket_date DESC
                 """;
 
-        try (java.sql.Connection conn = DriverManager.getConnection(url);
-                PreparedStatement pstmt = conn.prepareStatement(query)) {
-
-            pstmt.setString(1, travellerId);
-            var rs = pstmt.executeQuery();
-
-            while (rs.next()) {
-                // Reconstruct Traveller
-                Traveller traveller = Traveller.getInstance(
-                        rs.getString("first_name"),
-                        rs.getString("last_name"),
-                        rs.getString("traveller_id"));
-
-                // Reconstruct Trip with original ID
-                long tripId = rs.getLong("trip_id");
-                List<Connection> connections = getTripConnections(tripId);
-                BigDecimal totalFirstClassRate = rs.getBigDecimal("total_first_class_rate");
-                BigDecimal totalSecondClassRate = rs.getBigDecimal("total_second_class_rate");
-                Duration totalDuration = Duration.ofMinutes(rs.getLong("total_duration_minutes"));
-
-                Trip trip = new Trip(tripId, connections, totalFirstClassRate,
-                        totalSecondClassRate, totalDuration);
-
-                // Create Ticket
-                Ticket ticket = new Ticket(trip, traveller, rs.getString("class_type"));
-                tickets.add(ticket);
-            }
-
+        try {
+            pool().read(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                    pstmt.setString(1, travellerId);
+                    var rs = pstmt.executeQuery();
+
+                    while (rs.next()) {
+                        // Reconstruct Traveller
+                        Traveller traveller = Traveller.getInstance(
+                                rs.getString("first_name"),
+                                rs.getString("last_name"),
+                                rs.getString("traveller_id"));
+
+                        // Reconstruct Trip with original ID
+                        long tripId = rs.getLong("trip_id");
+                        List<Connection> connections = getTripConnections(conn, tripId);
+                        Money totalFirstClassRate = Money.of(rs.getBigDecimal("total_first_class_rate"));
+                        Money totalSecondClassRate = Money.of(rs.getBigDecimal("total_second_class_rate"));
+                        Duration totalDuration = Duration.ofMinutes(rs.getLong("total_duration_minutes"));
+
+                        Trip trip = new Trip(tripId, connections, totalFirstClassRate,
+                                totalSecondClassRate, totalDuration);
+
+                        // Create Ticket
+                        Ticket ticket = new Ticket(trip, traveller, rs.getString("class_type"));
+                        tickets.add(ticket);
+                    }
+                }
+                return null;
+            });
         } catch (SQLException e) {
             System.out.println("Error retrieving traveller bookings: " + e.getMessage());
         }
@@ -475,10 +652,10 @@ public class DBManager {
         return tickets;
     }
 
-    private int getConnectionId(String routeId) throws SQLException {
+    // Runs on the caller's connection, so it sees the caller's open transaction
+    private int getConnectionId(java.sql.Connection conn, String routeId) throws SQLException {
         String query = "SELECT id FROM connections WHERE route_id = ?";
-        try (java.sql.Connection conn = DriverManager.getConnection(url);
-                PreparedStatement pstmt = conn.prepareStatement(query)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setString(1, routeId);
             var rs = pstmt.executeQuery();
             if (rs.next()) {
@@ -491,26 +668,30 @@ public class DBManager {
     public void loadTravellers() {
         String query = "SELECT id, first_name, last_name FROM travellers";
 
-        try (java.sql.Connection conn = DriverManager.getConnection(url);
-                Statement stmt = conn.createStatement();
-                var rs = stmt.executeQuery(query)) {
+        try {
+            pool().read(conn -> {
+                try (Statement stmt = conn.createStatement();
+                        var rs = stmt.executeQuery(query)) {
+
+                    int count = 0;
+                    while (rs.next()) {
+                        String id = rs.getString("id");
+                        String firstName = rs.getString("first_name");
+                        String lastName = rs.getString("last_name");
+
+                        // Load traveller into registry if not already present
+                        if (!Traveller.exists(id)) {
+                            Traveller.getInstance(firstName, lastName, id);
+                            count++;
+                        }
+                    }
 
-            int count = 0;
-            while (rs.next()) {
-                String id = rs.getString("id");
-                String firstName = rs.getString("first_name");
-                String lastName = rs.getString("last_name");
-
-                // Load traveller into registry if not already present
-                if (!Traveller.exists(id)) {
-                    Traveller.getInstance(firstName, lastName, id);
-                    count++;
+                    if (count > 0) {
+                        System.out.println("[INFO] Loaded " + count + " traveller(s) from database.");
+                    }
                 }
-            }
-
-            if (count > 0) {
-                System.out.println("[INFO] Loaded " + count + " traveller(s) from database.");
-            }
+                return null;
+            });
         } catch (SQLException e) {
             System.out.println("Error loading travellers: " + e.getMessage());
         }
@@ -57,7 +57,7 @@ public class DatabaseInitializer {
                 return false;
             }
 
-            terminal.setConnectionRepo(new ConnectionRepository(connections));
+            terminal.setConnectionRepo(new ConnectionRepository(connections, true));
             terminal.setDbManager(dbManager);
 
             // Load existing travellers from database into registry
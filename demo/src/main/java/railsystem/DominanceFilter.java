@@ -0,0 +1,148 @@
+package railsystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps only the trips that no other trip between the same two cities beats on
+ * every axis: leaving no earlier, arriving no later, costing no more in either
+ * class, changing trains no more often and running on at least the same days
+ * of the week. Trips that tie on every axis are duplicates and only the first
+ * one is kept. Trips can be offered one by one
+ * while searching, or a finished list filtered with {@link #filter(List)}.
+ */
+final class DominanceFilter {
+    private static final Comparator<Key> SKYLINE_ORDER = Comparator.comparingInt(Key::legs)
+            .thenComparingLong(Key::arrival)
+            .thenComparing(Comparator.comparingLong(Key::departure).reversed())
+            .thenComparingLong(Key::secondClass)
+            .thenComparingLong(Key::firstClass)
+            .thenComparing(Comparator.comparingInt(Key::dayCount).reversed());
+
+    private final Map<List<City>, List<Key>> kept = new HashMap<>();
+    private final List<Key> offered = new ArrayList<>();
+    private final BitSet dropped = new BitSet();
+    private int prunedCount;
+
+    /**
+     * Keeps the trip unless a kept trip is at least as good on every axis, and
+     * drops the kept trips it beats. Returns true if the trip was kept.
+     */
+    boolean offer(Trip trip) {
+        Key candidate = new Key(trip, offered.size());
+        offered.add(candidate);
+        List<Key> rivals = kept.computeIfAbsent(candidate.endpoints(), endpoints -> new ArrayList<>());
+        for (Key rival : rivals) {
+            if (rival.dominates(candidate)) {
+                drop(candidate);
+                return false;
+            }
+        }
+
+        rivals.removeIf(rival -> {
+            if (candidate.dominates(rival)) {
+                drop(rival);
+                return true;
+            }
+            return false;
+        });
+        rivals.add(candidate);
+        return true;
+    }
+
+    /**
+     * Kept trips in the order they were offered.
+     */
+    List<Trip> getTrips() {
+        List<Trip> trips = new ArrayList<>(offered.size() - prunedCount);
+        for (Key key : offered) {
+            if (!dropped.get(key.sequence())) {
+                trips.add(key.trip());
+            }
+        }
+        return trips;
+    }
+
+    /**
+     * Number of trips dropped as dominated or duplicate so far.
+     */
+    int getPrunedCount() {
+        return prunedCount;
+    }
+
+    /**
+     * Filters a finished list in one pass. Sorting first puts every trip after
+     * the trips that beat it, so a trip is only compared with the skyline kept so
+     * far and nothing kept is ever removed again. More trips may be offered to
+     * the returned filter afterwards.
+     */
+    static DominanceFilter filter(List<Trip> trips) {
+        DominanceFilter result = new DominanceFilter();
+        for (Trip trip : trips) {
+            result.offered.add(new Key(trip, result.offered.size()));
+        }
+        Key[] sorted = result.offered.toArray(new Key[0]);
+        Arrays.sort(sorted, SKYLINE_ORDER.thenComparingInt(Key::sequence));
+
+        for (Key key : sorted) {
+            List<Key> rivals = result.kept.computeIfAbsent(key.endpoints(), endpoints -> new ArrayList<>());
+            if (rivals.stream().anyMatch(rival -> rival.dominates(key))) {
+                result.drop(key);
+            } else {
+                rivals.add(key);
+            }
+        }
+        return result;
+    }
+
+    private void drop(Key key) {
+        dropped.set(key.sequence());
+        prunedCount++;
+    }
+
+    /**
+     * The compared axes of a trip, with times in minutes from midnight of the
+     * departure day, fares in cents and the days it can be taken as a
+     * {@link TrainSchedule} mask.
+     */
+    private record Key(Trip trip, int sequence, List<City> endpoints, long departure, long arrival,
+            long firstClass, long secondClass, int legs, int days) {
+
+        private Key(Trip trip, int sequence) {
+            this(trip, sequence, endpointsOf(trip),
+                    WeeklyTimetable.minuteOfDay(trip.getConnections().get(0).getDepartureStop()),
+                    WeeklyTimetable.minuteOfDay(trip.getConnections().get(0).getDepartureStop())
+                            + trip.getTotalDuration().toMinutes(),
+                    trip.getTotalFirstClassRate().getCents(), trip.getTotalSecondClassRate().getCents(),
+                    trip.getConnections().size(), WeeklyTimetable.departureDays(trip.getConnections()));
+        }
+
+        /**
+         * A trip that runs on fewer days is not worse, so it must also run on
+         * every day the other one does.
+         */
+        private boolean dominates(Key other) {
+            return departure >= other.departure
+                    && arrival <= other.arrival
+                    && firstClass <= other.firstClass
+                    && secondClass <= other.secondClass
+                    && legs <= other.legs
+                    && (days & other.days) == other.days;
+        }
+
+        private int dayCount() {
+            return Integer.bitCount(days);
+        }
+
+        private static List<City> endpointsOf(Trip trip) {
+            List<Connection> connections = trip.getConnections();
+            return List.of(connections.get(0).getDepartureStop().getCity(),
+                    connections.get(connections.size() - 1).getArrivalStop().getCity());
+        }
+    }
+}
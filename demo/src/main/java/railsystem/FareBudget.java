@@ -0,0 +1,57 @@
+package railsystem;
+
+/**
+ * Upper bound on the accumulated fares of a partial itinerary, used to cut a
+ * branch of the transfer search as soon as it cannot lead to an acceptable
+ * trip. Combines the criteria's trip budgets with, when ranking by price, the
+ * worst fare still kept by a {@link TopKCollector}. Fares are never negative,
+ * so a partial itinerary over the bound stays over it.
+ */
+final class FareBudget {
+    private final long firstClassBudget;
+    private final long secondClassBudget;
+    private final TopKCollector top;
+
+    FareBudget(SearchCriteria criteria, TopKCollector top) {
+        this.firstClassBudget = criteria.getMaxTotalFirstClassRate() == null ? Long.MAX_VALUE
+                : Money.floorCents(criteria.getMaxTotalFirstClassRate());
+        this.secondClassBudget = criteria.getMaxTotalSecondClassRate() == null ? Long.MAX_VALUE
+                : Money.floorCents(criteria.getMaxTotalSecondClassRate());
+        this.top = top;
+    }
+
+    boolean exceeds(long firstClassCents, long secondClassCents) {
+        long firstClassLimit = firstClassBudget;
+        long secondClassLimit = secondClassBudget;
+        if (top != null) {
+            firstClassLimit = Math.min(firstClassLimit, top.firstClassBound());
+            secondClassLimit = Math.min(secondClassLimit, top.secondClassBound());
+        }
+        return firstClassCents > firstClassLimit || secondClassCents > secondClassLimit;
+    }
+
+    /**
+     * Checks the fares of a single leg. Fixed-arity overloads keep the transfer
+     * search from allocating an array for every candidate leg.
+     */
+    boolean exceeds(Connection leg) {
+        return exceeds(firstClass(leg), secondClass(leg));
+    }
+
+    boolean exceeds(Connection first, Connection second) {
+        return exceeds(firstClass(first) + firstClass(second), secondClass(first) + secondClass(second));
+    }
+
+    boolean exceeds(Connection first, Connection second, Connection third) {
+        return exceeds(firstClass(first) + firstClass(second) + firstClass(third),
+                secondClass(first) + secondClass(second) + secondClass(third));
+    }
+
+    private static long firstClass(Connection leg) {
+        return leg.getTicketRates().getFirstClass().getCents();
+    }
+
+    private static long secondClass(Connection leg) {
+        return leg.getTicketRates().getSecondClass().getCents();
+    }
+}
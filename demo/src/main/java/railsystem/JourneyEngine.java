@@ -0,0 +1,12 @@
+package railsystem;
+
+import java.util.List;
+
+/**
+ * Strategy for finding itineraries with transfers between the departure and
+ * arrival cities of a {@link SearchCriteria}.
+ */
+interface JourneyEngine {
+
+    List<Trip> findJourneys(ConnectionRepository repository, SearchCriteria criteria);
+}
@@ -0,0 +1,87 @@
+package railsystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Departures of each city that pass the per-leg filters of a search (train
+ * type and per-leg fare caps), looked up once and then shared by every leg
+ * expansion, and by every query of a batch that uses the same filters.
+ */
+final class LegMemo {
+    private final ConnectionRepository repository;
+    private final SearchCriteria legCriteria;
+    // Each day's departures twice in a row, so a window past midnight is one sublist
+    private final Map<List<String>, List<Connection>> departures = new ConcurrentHashMap<>();
+
+    LegMemo(ConnectionRepository repository, SearchCriteria criteria) {
+        this.repository = repository;
+        this.legCriteria = SearchCriteria.builder()
+                .preferredTrain(criteria.getPreferredTrain())
+                .firstClassRate(criteria.getFirstClassRate())
+                .secondClassRate(criteria.getSecondClassRate())
+                .build();
+    }
+
+    /**
+     * Key of the filters, so that batches can share a memo between queries.
+     */
+    static List<Object> keyOf(SearchCriteria criteria) {
+        return Arrays.asList(criteria.getPreferredTrain(), criteria.getFirstClassRate(),
+                criteria.getSecondClassRate());
+    }
+
+    /**
+     * Departures from the city {@code previous} arrives at, going to
+     * {@code arrivalCity} if not null, that leave between the minimum and the
+     * maximum transfer time after it arrives by the clock. They are in departure
+     * order, wrapping past midnight. Departures outside that window can never be
+     * boarded, whatever the operating days. The list is a view of the memo and
+     * must not be modified.
+     */
+    List<Connection> connecting(Connection previous, String arrivalCity) {
+        String city = previous.getArrivalStop().getCity().getName();
+        List<Connection> twice = departures.computeIfAbsent(Arrays.asList(city, arrivalCity), key -> {
+            SearchCriteria criteria = new SearchCriteria(legCriteria);
+            criteria.setDepartureCity(city);
+            criteria.setArrivalCity(arrivalCity);
+            List<Connection> day = repository.searchDepartures(criteria);
+            List<Connection> doubled = new ArrayList<>(day.size() * 2);
+            doubled.addAll(day);
+            doubled.addAll(day);
+            return doubled;
+        });
+
+        int earliest = (WeeklyTimetable.minuteOfDay(previous.getArrivalStop())
+                + ConnectionScanEngine.MIN_TRANSFER_MINUTES) % WeeklyTimetable.MINUTES_PER_DAY;
+        int latest = earliest
+                + ConnectionScanEngine.MAX_TRANSFER_MINUTES - ConnectionScanEngine.MIN_TRANSFER_MINUTES;
+        int start = firstAtOrAfter(twice, earliest);
+        int end = Math.min(firstAtOrAfter(twice, latest + 1), start + twice.size() / 2);
+        return twice.subList(start, end);
+    }
+
+    /**
+     * Index in the doubled list of the first departure at or after
+     * {@code minute}, counted from the first day's midnight.
+     */
+    private static int firstAtOrAfter(List<Connection> twice, int minute) {
+        int size = twice.size() / 2;
+        int offset = minute >= WeeklyTimetable.MINUTES_PER_DAY ? size : 0;
+        int target = minute - (offset == 0 ? 0 : WeeklyTimetable.MINUTES_PER_DAY);
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (WeeklyTimetable.minuteOfDay(twice.get(mid).getDepartureStop()) < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return offset + low;
+    }
+}
@@ -0,0 +1,191 @@
+package railsystem;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Load generator for {@link RailServer}: fires random city-to-city searches,
+ * or bookings of trips found by a few searches, with a fixed number in flight
+ * and reports throughput and latency.
+ * <p>
+ * Usage: {@code LoadGenerator [--url=http://localhost:8080] [--requests=1000]
+ * [--concurrency=32] [--seed=42] [--mode=search|booking]}
+ */
+public class LoadGenerator {
+    private static final int BOOKABLE_TRIPS = 20;
+    private static final int BOOKING_SEARCH_ATTEMPTS = 2000;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final String baseUrl;
+    private final LatencyStats latency = new LatencyStats();
+    private final LongAdder errors = new LongAdder();
+
+    public LoadGenerator(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = "http://localhost:" + RailServer.DEFAULT_PORT;
+        int requests = 1000;
+        int concurrency = 32;
+        long seed = 42;
+        boolean booking = false;
+        for (String arg : args) {
+            if (arg.startsWith("--url=")) {
+                url = arg.substring("--url=".length());
+            } else if (arg.startsWith("--requests=")) {
+                requests = Integer.parseInt(arg.substring("--requests=".length()));
+            } else if (arg.startsWith("--concurrency=")) {
+                concurrency = Integer.parseInt(arg.substring("--concurrency=".length()));
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            } else if (arg.equals("--mode=booking")) {
+                booking = true;
+            } else if (arg.equals("--mode=search")) {
+                booking = false;
+            } else {
+                System.err.println("[ERROR] Unknown option: " + arg);
+                return;
+            }
+        }
+        LoadGenerator generator = new LoadGenerator(url);
+        if (booking) {
+            generator.runBookings(requests, concurrency, seed);
+        } else {
+            generator.run(requests, concurrency, seed);
+        }
+    }
+
+    /**
+     * Sends {@code requests} searches between random cities, at most
+     * {@code concurrency} at a time, and prints the results.
+     */
+    public void run(int requests, int concurrency, long seed) throws Exception {
+        List<String> cities = cities();
+        if (cities.size() < 2) {
+            System.out.println("[ERROR] The server knows fewer than two cities.");
+            return;
+        }
+
+        Random random = new Random(seed);
+        fire("search", requests, concurrency, i -> {
+            String from = cities.get(random.nextInt(cities.size()));
+            String to = cities.get(random.nextInt(cities.size()));
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/search?departureCity=" + encode(from)
+                    + "&arrivalCity=" + encode(to) + "&limit=10")).GET().build();
+        }, 200);
+    }
+
+    /**
+     * Books {@code requests} random trips, one passenger each, at most
+     * {@code concurrency} at a time, and prints the results. The trips come from
+     * searches between random cities made beforehand.
+     */
+    public void runBookings(int requests, int concurrency, long seed) throws Exception {
+        List<String> cities = cities();
+        Random random = new Random(seed);
+        List<Object> tripIds = new ArrayList<>();
+        for (int attempt = 0; attempt < BOOKING_SEARCH_ATTEMPTS && tripIds.size() < BOOKABLE_TRIPS; attempt++) {
+            String from = cities.get(random.nextInt(cities.size()));
+            String to = cities.get(random.nextInt(cities.size()));
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl
+                    + "/search?departureCity=" + encode(from) + "&arrivalCity=" + encode(to) + "&limit=1")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 200 && Json.parse(response.body()) instanceof Map<?, ?> result
+                    && result.get("trips") instanceof List<?> trips && !trips.isEmpty()
+                    && trips.get(0) instanceof Map<?, ?> trip) {
+                tripIds.add(trip.get("id"));
+            }
+        }
+        if (tripIds.isEmpty()) {
+            System.out.println("[ERROR] No bookable trips found.");
+            return;
+        }
+
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        fire("booking", requests, concurrency, i -> {
+            Map<String, Object> passenger = Map.of("firstName", "Load", "lastName", "Test",
+                    "id", "load-" + run + "-" + i);
+            Map<String, Object> booking = Map.of("tripId", tripIds.get(random.nextInt(tripIds.size())),
+                    "classRate", "Second Class", "passengers", List.of(passenger));
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/bookings"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(Json.write(booking))).build();
+        }, 201);
+    }
+
+    private void fire(String kind, int requests, int concurrency, IntFunction<HttpRequest> requestOf,
+            int expectedStatus) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(concurrency);
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            for (int i = 0; i < requests; i++) {
+                HttpRequest request = requestOf.apply(i);
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        send(request, expectedStatus);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } finally {
+            executor.close();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("[INFO] %d %s request(s) in %.2f s (%.1f req/s), %d error(s), concurrency %d%n",
+                requests, kind, seconds, requests / seconds, errors.sum(), concurrency);
+        System.out.println("[INFO] Latency: " + latency);
+    }
+
+    public LatencyStats getLatency() {
+        return latency;
+    }
+
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    private void send(HttpRequest request, int expectedStatus) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != expectedStatus) {
+                errors.increment();
+            }
+        } catch (Exception e) {
+            errors.increment();
+        } finally {
+            latency.record(System.nanoTime() - start);
+        }
+    }
+
+    private List<String> cities() throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/cities")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200 || !(Json.parse(response.body()) instanceof List<?> names)) {
+            throw new IllegalStateException("Could not list cities: HTTP " + response.statusCode());
+        }
+        return names.stream().map(String::valueOf).toList();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
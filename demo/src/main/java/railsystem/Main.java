@@ -1,15 +1,96 @@
 package railsystem;
 
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Scanner;
 
 public class Main {
+    private static final String TIME_BUDGET_OPTION = "--time-budget-ms=";
+    private static final String PORT_OPTION = "--port=";
+    private static final String BATCH_OPTION = "--batch=";
+    private static final String WORKERS_OPTION = "--workers=";
+    private static final String OUTPUT_OPTION = "--output=";
+    private static final String LIMIT_OPTION = "--limit=";
+    private static final String GROUP_COMMIT_BATCH_OPTION = "--group-commit-batch=";
+    private static final String GROUP_COMMIT_DELAY_OPTION = "--group-commit-delay-ms=";
+    private static final int DEFAULT_GROUP_COMMIT_BATCH = 64;
+    private static final long DEFAULT_GROUP_COMMIT_DELAY_MS = 5;
+    private static final long MAX_GROUP_COMMIT_DELAY_MS = 60_000;
+    private static final int MAX_WORKERS = 1024;
+    private static final int MAX_PORT = 65535;
+
     public static void main(String[] args) {
+        long bootNanos = System.nanoTime();
         Scanner scanner = null;
+        PrintStream stdout = System.out;
+        String batchFile = optionValue(args, BATCH_OPTION);
+        if (batchFile != null) {
+            // Standard output is reserved for results, so messages go to standard error
+            System.setOut(System.err);
+        }
 
         try {
             // Initialize database
             String url = "jdbc:sqlite:db/project.db";
             Terminal terminal = Terminal.getInstance();
+            terminal.setParallelSearch(Arrays.asList(args).contains("--parallel"));
+            terminal.setPruneDominated(Arrays.asList(args).contains("--prune-dominated"));
+            String timeBudget = optionValue(args, TIME_BUDGET_OPTION);
+            if (timeBudget != null) {
+                Long millis = parseOption(TIME_BUDGET_OPTION, timeBudget, 1);
+                if (millis == null) {
+                    return;
+                }
+                terminal.setSearchTimeBudget(Duration.ofMillis(millis));
+            }
+            Long workers = Long.valueOf(Runtime.getRuntime().availableProcessors());
+            Long limit = null;
+            if (batchFile != null) {
+                String workersValue = optionValue(args, WORKERS_OPTION);
+                String limitValue = optionValue(args, LIMIT_OPTION);
+                if (workersValue != null) {
+                    workers = parseOption(WORKERS_OPTION, workersValue, 1, MAX_WORKERS);
+                }
+                if (limitValue != null) {
+                    limit = parseOption(LIMIT_OPTION, limitValue, 0, Integer.MAX_VALUE);
+                }
+                if (workers == null || (limitValue != null && limit == null)) {
+                    return;
+                }
+            }
+
+            Long port = (long) RailServer.DEFAULT_PORT;
+            boolean server = Arrays.asList(args).contains("--server");
+            String portValue = optionValue(args, PORT_OPTION);
+            if (server && portValue != null) {
+                port = parseOption(PORT_OPTION, portValue, 0, MAX_PORT);
+                if (port == null) {
+                    return;
+                }
+            }
+
+            Long groupCommitBatch = (long) DEFAULT_GROUP_COMMIT_BATCH;
+            Long groupCommitDelay = DEFAULT_GROUP_COMMIT_DELAY_MS;
+            boolean groupCommit = Arrays.asList(args).contains("--group-commit");
+            if (groupCommit) {
+                String batchValue = optionValue(args, GROUP_COMMIT_BATCH_OPTION);
+                String delayValue = optionValue(args, GROUP_COMMIT_DELAY_OPTION);
+                if (batchValue != null) {
+                    groupCommitBatch = parseOption(GROUP_COMMIT_BATCH_OPTION, batchValue, 1, Integer.MAX_VALUE);
+                }
+                if (delayValue != null) {
+                    groupCommitDelay = parseOption(GROUP_COMMIT_DELAY_OPTION, delayValue, 0,
+                            MAX_GROUP_COMMIT_DELAY_MS);
+                }
+                if (groupCommitBatch == null || groupCommitDelay == null) {
+                    return;
+                }
+            }
 
             DatabaseInitializer dbInitializer = new DatabaseInitializer(url, terminal);
 
@@ -28,11 +109,28 @@ public class Main {
                 return;
             }
 
+            if (groupCommit) {
+                startBookingWriter(terminal, groupCommitBatch.intValue(), Duration.ofMillis(groupCommitDelay));
+            }
+
+            if (batchFile != null) {
+                runBatch(terminal, Path.of(batchFile), optionValue(args, OUTPUT_OPTION), workers.intValue(),
+                        limit == null ? null : limit.intValue(), stdout);
+                closeDatabase(terminal);
+                return;
+            }
+
+            if (server) {
+                startServer(terminal, port.intValue(), bootNanos);
+                return;
+            }
+
             // Initialize services
             scanner = new Scanner(System.in);
             MenuSystem menuSystem = new MenuSystem(scanner, terminal);
             SearchService searchService = new SearchService(terminal, menuSystem);
             TravellerService travellerService = new TravellerService(menuSystem, terminal);
+            NetworkService networkService = new NetworkService(terminal, menuSystem);
 
             menuSystem.displayWelcome();
 
@@ -52,6 +150,19 @@ public class Main {
                         case "2":
                             travellerService.viewTravellerTrips();
                             break;
+                        case "3":
+                            Terminal.SearchEngine engine = menuSystem.getSearchEngineChoice();
+                            if (engine != null) {
+                                terminal.setSearchEngine(engine);
+                                System.out.println("\n  Search engine set to: " + engine.getDescription() + "\n");
+                            }
+                            break;
+                        case "4":
+                            networkService.showReachableCities();
+                            break;
+                        case "5":
+                            networkService.manageTravelMatrix();
+                            break;
                         case "q":
                         case "Q":
                             menuSystem.displayGoodbye();
@@ -66,6 +177,7 @@ public class Main {
                     System.out.println("Please try again or contact support if the problem persists.\n");
                 }
             }
+            closeDatabase(terminal);
         } catch (Exception e) {
             System.out.println("\n[ERROR] Critical Error: " + e.getMessage());
             System.out.println("The application must exit.\n");
@@ -76,4 +188,97 @@ public class Main {
             }
         }
     }
+
+    /**
+     * Serves searches and bookings over HTTP instead of showing the menu. The
+     * server runs until the process is stopped.
+     */
+    private static void startServer(Terminal terminal, int port, long bootNanos) throws IOException {
+        terminal.setVerbose(false);
+        RailServer server = new RailServer(terminal, port);
+        server.start(bootNanos);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            closeDatabase(terminal);
+        }));
+    }
+
+    /**
+     * Runs the searches in {@code input} and writes their results as JSON lines
+     * to the {@code output} file, or to standard output if it is null.
+     */
+    private static void runBatch(Terminal terminal, Path input, String output, int workers, Integer limit,
+            PrintStream stdout) throws IOException {
+        terminal.setVerbose(false);
+        BatchSearch batch = new BatchSearch(terminal, workers, limit);
+        if (output == null) {
+            batch.run(input, stdout);
+            return;
+        }
+        try (PrintStream out = new PrintStream(Files.newOutputStream(Path.of(output)), false,
+                StandardCharsets.UTF_8)) {
+            batch.run(input, out);
+        }
+        System.out.println("[INFO] Results written to " + output);
+    }
+
+    /**
+     * Saves bookings through the group-commit writer instead of one transaction
+     * per booking.
+     */
+    private static void startBookingWriter(Terminal terminal, int maxBatchSize, Duration maxDelay) {
+        DBManager dbManager = terminal.getDbManager();
+        if (dbManager == null) {
+            System.out.println("[WARN] No database available; --group-commit is ignored.");
+            return;
+        }
+        dbManager.startBookingWriter(maxBatchSize, maxDelay);
+        System.out.printf("[INFO] Group commit enabled: up to %d booking(s) per transaction, %d ms delay.%n",
+                maxBatchSize, maxDelay.toMillis());
+    }
+
+    /**
+     * Writes any queued bookings and closes the database connections.
+     */
+    private static void closeDatabase(Terminal terminal) {
+        DBManager dbManager = terminal.getDbManager();
+        if (dbManager != null) {
+            dbManager.close();
+        }
+    }
+
+    /**
+     * Parses the value of a numeric option. Prints a usage error and returns
+     * null unless it is a whole number of at least {@code min}.
+     */
+    private static Long parseOption(String option, String value, long min) {
+        return parseOption(option, value, min, Long.MAX_VALUE);
+    }
+
+    /**
+     * Parses the value of a numeric option. Prints a usage error and returns
+     * null unless it is a whole number between {@code min} and {@code max}.
+     */
+    private static Long parseOption(String option, String value, long min, long max) {
+        try {
+            long parsed = Long.parseLong(value.trim());
+            if (parsed >= min && parsed <= max) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        System.out.println("[ERROR] Invalid option " + option + value + ": expected a whole number "
+                + (max == Long.MAX_VALUE ? "of at least " + min : "between " + min + " and " + max) + ".");
+        return null;
+    }
+
+    private static String optionValue(String[] args, String option) {
+        for (String arg : args) {
+            if (arg.startsWith(option)) {
+                return arg.substring(option.length());
+            }
+        }
+        return null;
+    }
 }
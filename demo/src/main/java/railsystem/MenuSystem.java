@@ -1,6 +1,8 @@
 package railsystem;
 
+import java.time.DayOfWeek;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
 import java.util.regex.Pattern;
@@ -16,6 +18,7 @@ public class MenuSystem {
     private static final Pattern TIME_PATTERN = Pattern.compile("^([01]?[0-9]|2[0-3]):[0-5][0-9]$");
     private static final Pattern BOOLEAN_PATTERN = Pattern.compile("^(true|false)$", Pattern.CASE_INSENSITIVE);
     private static final Pattern POSITIVE_NUMBER_PATTERN = Pattern.compile("^\\d+(\\.\\d+)?$");
+    private static final Pattern WHOLE_NUMBER_PATTERN = Pattern.compile("^\\d+$");
 
     public MenuSystem(Scanner scanner, Terminal terminal) {
         this.scanner = scanner;
@@ -37,6 +40,11 @@ public class MenuSystem {
         return time.isEmpty() || TIME_PATTERN.matcher(time).matches();
     }
 
+    private boolean isValidDay(String day) {
+        return day.isEmpty() || Arrays.stream(DayOfWeek.values())
+                .anyMatch(value -> value.name().equalsIgnoreCase(day));
+    }
+
     /**
      * Validates if a string represents a valid boolean value.
      */
@@ -51,6 +59,13 @@ public class MenuSystem {
         return value.isEmpty() || POSITIVE_NUMBER_PATTERN.matcher(value).matches();
     }
 
+    /**
+     * Validates if a string represents a whole number (0 or more).
+     */
+    private boolean isValidWholeNumber(String value) {
+        return value.isEmpty() || WHOLE_NUMBER_PATTERN.matcher(value).matches();
+    }
+
     /**
      * Safely reads an integer with error handling.
      */
@@ -108,6 +123,9 @@ public class MenuSystem {
         System.out.println("[0] Display all connections");
         System.out.println("[1] Start a search");
         System.out.println("[2] View your trips");
+        System.out.println("[3] Change search engine (current: " + terminal.getSearchEngine().getDescription() + ")");
+        System.out.println("[4] Show every city reachable from a departure city");
+        System.out.println("[5] Travel time and fare matrix");
         System.out.println("[q] Quit");
         System.out.print("Enter your choice: ");
         return scanner.nextLine().trim();
@@ -187,9 +205,104 @@ public class MenuSystem {
                 "Please enter a valid positive number.");
         searchArgs.add(secondClassRate);
 
+        // Max transfers (used by the RAPTOR and Connection Scan engines)
+        String maxTransfers = getValidatedInput(
+                "Max transfers: ",
+                this::isValidWholeNumber,
+                "Please enter a whole number (e.g., 2).");
+        searchArgs.add(maxTransfers);
+
+        // Budgets for the whole trip, summed over every leg
+        String maxTotalFirstClassRate = getValidatedInput(
+                "Max total first class fare for the trip (€): ",
+                this::isValidPositiveNumber,
+                "Please enter a valid positive number.");
+        searchArgs.add(maxTotalFirstClassRate);
+
+        String maxTotalSecondClassRate = getValidatedInput(
+                "Max total second class fare for the trip (€): ",
+                this::isValidPositiveNumber,
+                "Please enter a valid positive number.");
+        searchArgs.add(maxTotalSecondClassRate);
+
         return searchArgs;
     }
 
+    /**
+     * Reads a one-to-all query: departure city, earliest departure, travel day,
+     * arrival deadline, train type and maximum transfers. Empty fields are
+     * returned as empty strings.
+     */
+    public List<String> getReachabilityCriteria() {
+        List<String> args = new ArrayList<>();
+
+        System.out.println("\n════════════ REACHABLE CITIES ════════════\n");
+        System.out.println("Press Enter to skip any field except the departure city.\n");
+
+        args.add(getValidatedInput(
+                "Departure city: ",
+                this::isValidCity,
+                "Invalid city name. Please try again."));
+        args.add(getValidatedInput(
+                "Earliest departure time (HH:MM): ",
+                this::isValidTime,
+                "Invalid time format. Please use HH:MM format (e.g., 09:30)."));
+        args.add(getValidatedInput(
+                "Travel day (default MONDAY): ",
+                this::isValidDay,
+                "Please enter a day of the week (e.g., FRIDAY)."));
+        args.add(getValidatedInput(
+                "Arrive by, the same day (HH:MM): ",
+                this::isValidTime,
+                "Invalid time format. Please use HH:MM format (e.g., 18:45)."));
+        args.add(getValidatedInput(
+                "Preferred train type: ",
+                this::isValidTrainType,
+                "Invalid train type. Please try again."));
+        args.add(getValidatedInput(
+                "Max transfers: ",
+                this::isValidWholeNumber,
+                "Please enter a whole number (e.g., 2)."));
+        return args;
+    }
+
+    public void displayReachableCities(List<ReachableCity> cities) {
+        if (cities.isEmpty()) {
+            System.out.println("\n  No cities can be reached with these criteria.\n");
+            return;
+        }
+        System.out.println("\n  " + cities.size() + " city(ies) reachable, fastest first:\n");
+        for (ReachableCity city : cities) {
+            long minutes = city.getTravelTime().toMinutes();
+            System.out.printf("  %-24s arrives %-9s %s  after %dh %02dm, %d transfer(s)%n",
+                    city.getCity().getName(), city.getArrivalDay(), city.getArrivalTime(), minutes / 60,
+                    minutes % 60, city.getTransfers());
+        }
+        System.out.println();
+    }
+
+    public String displayTravelMatrixMenu(boolean matrixLoaded) {
+        System.out.println("\n════════════ TRAVEL MATRIX ════════════\n");
+        System.out.println("[1] Compute from the current timetable");
+        System.out.println("[2] Load from a file");
+        if (matrixLoaded) {
+            System.out.println("[3] Save to a file (.csv for CSV, binary otherwise)");
+            System.out.println("[4] Look up two cities");
+        }
+        System.out.println("[0] Back");
+        System.out.print("Enter your choice: ");
+        return scanner.nextLine().trim();
+    }
+
+    public String getFilePath(String prompt) {
+        System.out.print(prompt);
+        return scanner.nextLine().trim();
+    }
+
+    public String getCity(String prompt) {
+        return getValidatedInput(prompt, this::isValidCity, "Invalid city name. Please try again.");
+    }
+
     public String displaySortingMenu() {
         System.out.println("\n╔════════════════════════════════════════════════════════════════╗");
         System.out.println("║                         SORTING OPTIONS                        ║");
@@ -226,6 +339,18 @@ public class MenuSystem {
         }
     }
 
+    public Terminal.SearchEngine getSearchEngineChoice() {
+        Terminal.SearchEngine[] engines = Terminal.SearchEngine.values();
+
+        System.out.println("\nSelect the engine used for searches with transfers:");
+        for (int i = 0; i < engines.length; i++) {
+            System.out.println("[" + (i + 1) + "] " + engines[i].getDescription());
+        }
+
+        Integer option = readIntegerSafely("Enter your choice (1-" + engines.length + "): ", 1, engines.length);
+        return option == null ? null : engines[option - 1];
+    }
+
     public BookingRequest getBookingRequest(List<Trip> searchResult) {
         try {
             // Get trip option with validation
@@ -0,0 +1,73 @@
+package railsystem;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * An amount in euro held as a whole number of cents, so fares can be added and
+ * compared without BigDecimal arithmetic. Converts exactly to and from the
+ * two-decimal values stored in the database.
+ */
+@Getter
+@EqualsAndHashCode
+public final class Money implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * Converts a euro amount, rounding half up to the nearest cent.
+     */
+    public static Money of(BigDecimal amount) {
+        if (amount == null) {
+            throw new IllegalArgumentException("Amount cannot be null");
+        }
+        return ofCents(amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    /**
+     * Largest number of cents that is not above {@code amount}, so that
+     * {@code fare.getCents() <= floorCents(amount)} holds exactly when the fare is
+     * at most the amount. Saturates at the range of a long.
+     */
+    public static long floorCents(BigDecimal amount) {
+        BigDecimal cents = amount.movePointRight(2).setScale(0, RoundingMode.FLOOR);
+        if (cents.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) > 0) {
+            return Long.MAX_VALUE;
+        }
+        return cents.max(BigDecimal.valueOf(Long.MIN_VALUE)).longValue();
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public boolean isAtMost(BigDecimal amount) {
+        return cents <= floorCents(amount);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
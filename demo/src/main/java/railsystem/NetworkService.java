@@ -0,0 +1,135 @@
+package railsystem;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Handles the network-wide queries of the menu: the cities reachable from one
+ * departure city and the travel matrix between every pair of cities.
+ */
+public class NetworkService {
+    private final Terminal terminal;
+    private final MenuSystem menuSystem;
+    // Last matrix computed or loaded in this session
+    private TravelMatrix matrix;
+
+    public NetworkService(Terminal terminal, MenuSystem menuSystem) {
+        this.terminal = terminal;
+        this.menuSystem = menuSystem;
+    }
+
+    public void showReachableCities() {
+        try {
+            List<String> args = menuSystem.getReachabilityCriteria();
+            if (args.get(0).isEmpty()) {
+                System.out.println("\n  [WARN] A departure city is required.\n");
+                return;
+            }
+
+            SearchCriteria criteria = new SearchCriteria();
+            criteria.setDepartureCity(args.get(0));
+            if (!args.get(1).isEmpty()) {
+                criteria.setEarliestDeparture(LocalTime.parse(args.get(1)));
+            }
+            DayOfWeek day = args.get(2).isEmpty() ? DayOfWeek.MONDAY
+                    : DayOfWeek.valueOf(args.get(2).toUpperCase(Locale.ROOT));
+            LocalTime arriveBy = args.get(3).isEmpty() ? null : LocalTime.parse(args.get(3));
+            if (!args.get(4).isEmpty()) {
+                criteria.setPreferredTrain(args.get(4));
+            }
+            if (!args.get(5).isEmpty()) {
+                criteria.setMaxTransfers(Integer.parseInt(args.get(5)));
+            }
+
+            menuSystem.displayReachableCities(terminal.findReachableCities(criteria, day, arriveBy));
+        } catch (Exception e) {
+            System.out.println("\n  [ERROR] An error occurred while finding reachable cities: " + e.getMessage()
+                    + "\n");
+        }
+    }
+
+    /**
+     * Computes, loads, saves and looks up the travel matrix until the user goes
+     * back to the main menu.
+     */
+    public void manageTravelMatrix() {
+        while (true) {
+            String choice = menuSystem.displayTravelMatrixMenu(matrix != null);
+            try {
+                switch (choice) {
+                    case "1":
+                        matrix = terminal.computeTravelMatrix();
+                        System.out.println("\n  [INFO] Travel matrix computed for " + matrix.getCities().size()
+                                + " cities.\n");
+                        break;
+                    case "2":
+                        Path source = Path.of(menuSystem.getFilePath("File to load: "));
+                        matrix = isCsv(source) ? TravelMatrix.readCsv(source) : TravelMatrix.readBinary(source);
+                        System.out.println("\n  [INFO] Travel matrix loaded for " + matrix.getCities().size()
+                                + " cities.\n");
+                        break;
+                    case "3":
+                        if (matrix == null) {
+                            menuSystem.displayInvalidChoice();
+                            break;
+                        }
+                        Path target = Path.of(menuSystem.getFilePath("File to save to: "));
+                        if (isCsv(target)) {
+                            matrix.writeCsv(target);
+                        } else {
+                            matrix.writeBinary(target);
+                        }
+                        System.out.println("\n  [INFO] Travel matrix saved to " + target + ".\n");
+                        break;
+                    case "4":
+                        if (matrix == null) {
+                            menuSystem.displayInvalidChoice();
+                            break;
+                        }
+                        lookUp();
+                        break;
+                    case "0":
+                        return;
+                    default:
+                        menuSystem.displayInvalidChoice();
+                        break;
+                }
+            } catch (IOException e) {
+                System.out.println("\n  [ERROR] Could not read or write the travel matrix: " + e.getMessage()
+                        + "\n");
+            } catch (Exception e) {
+                System.out.println("\n  [ERROR] An error occurred: " + e.getMessage() + "\n");
+            }
+        }
+    }
+
+    private void lookUp() {
+        String origin = menuSystem.getCity("Origin: ");
+        String destination = menuSystem.getCity("Destination: ");
+        if (origin.isEmpty() || destination.isEmpty()) {
+            System.out.println("\n  [WARN] Both cities are required.\n");
+            return;
+        }
+
+        City from = City.getInstance(origin);
+        City to = City.getInstance(destination);
+        Duration duration = matrix.getBestDuration(from, to);
+        if (duration == null) {
+            System.out.println("\n  " + destination + " cannot be reached from " + origin + ".\n");
+            return;
+        }
+        System.out.printf("%n  %s -> %s: fastest %dh %02dm, cheapest second class fare €%s%n%n", origin,
+                destination, duration.toHours(), duration.toMinutesPart(),
+                matrix.getCheapestSecondClassFare(from, to));
+    }
+
+    private static boolean isCsv(Path path) {
+        return path.getFileName() != null
+                && path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv");
+    }
+}
@@ -0,0 +1,249 @@
+package railsystem;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Multi-criteria journey engine. Scans the {@link WeeklyTimetable} once per
+ * travel day while keeping, for every city, only the partial journeys that are
+ * not dominated on duration, first and second class fare and number of
+ * transfers. What reaches the destination is therefore exactly the Pareto
+ * front, instead of every itinerary re-sorted afterwards.
+ */
+final class ParetoEngine implements JourneyEngine {
+
+    @Override
+    public List<Trip> findJourneys(ConnectionRepository repository, SearchCriteria criteria) {
+        if (criteria.getDepartureCity() == null || criteria.getArrivalCity() == null
+                || !City.exists(criteria.getDepartureCity()) || !City.exists(criteria.getArrivalCity())) {
+            return new ArrayList<>();
+        }
+
+        WeeklyTimetable timetable = repository.getWeeklyTimetable();
+        int origin = timetable.cityId(City.getInstance(criteria.getDepartureCity()));
+        int target = timetable.cityId(City.getInstance(criteria.getArrivalCity()));
+        if (origin < 0 || target < 0 || origin == target) {
+            return new ArrayList<>();
+        }
+
+        int maxLegs = (criteria.getMaxTransfers() == null ? RaptorEngine.DEFAULT_MAX_TRANSFERS
+                : Math.max(0, criteria.getMaxTransfers())) + 1;
+        int earliestMinute = criteria.getEarliestDeparture() == null ? 0
+                : criteria.getEarliestDeparture().toSecondOfDay() / 60;
+        Set<DayOfWeek> travelDays = criteria.getTravelDays();
+        Predicate<Connection> firstLegFilter = ConnectionScanEngine.firstLegFilter(criteria);
+        Predicate<Connection> legFilter = ConnectionScanEngine.legFilter(criteria);
+        FareBudget budget = new FareBudget(criteria, null);
+
+        Map<List<String>, Trip> journeys = new LinkedHashMap<>();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (travelDays != null && !travelDays.isEmpty() && !travelDays.contains(day)) {
+                continue;
+            }
+
+            int dayStart = (day.getValue() - 1) * WeeklyTimetable.MINUTES_PER_DAY;
+            for (Label label : scan(timetable, criteria, firstLegFilter, legFilter, budget, origin, target,
+                    dayStart + earliestMinute, dayStart + WeeklyTimetable.MINUTES_PER_DAY, maxLegs)) {
+                List<Connection> legs = label.legs(timetable);
+                List<String> key = legs.stream().map(Connection::getRouteId).toList();
+                if (!journeys.containsKey(key)) {
+                    journeys.put(key, new Trip(legs));
+                }
+            }
+        }
+        return mergeFronts(new ArrayList<>(journeys.values()));
+    }
+
+    /**
+     * Each day is scanned on its own, so a journey on the front of one day can
+     * still be beaten by one found on another. Keeps, in the order they were
+     * found, the journeys no other one matches on duration, both fares and legs
+     * while also running on every day they do; of two equal ones the first stays.
+     */
+    private static List<Trip> mergeFronts(List<Trip> journeys) {
+        List<Outcome> outcomes = journeys.stream().map(Outcome::new).toList();
+        List<Trip> front = new ArrayList<>(journeys.size());
+        for (int i = 0; i < outcomes.size(); i++) {
+            Outcome outcome = outcomes.get(i);
+            boolean dominated = false;
+            for (int j = 0; j < outcomes.size() && !dominated; j++) {
+                Outcome rival = outcomes.get(j);
+                dominated = j != i && rival.covers(outcome) && (j < i || !outcome.covers(rival));
+            }
+            if (!dominated) {
+                front.add(journeys.get(i));
+            }
+        }
+        return front;
+    }
+
+    private List<Label> scan(WeeklyTimetable timetable, SearchCriteria criteria,
+            Predicate<Connection> firstLegFilter, Predicate<Connection> legFilter, FareBudget budget, int origin,
+            int target, int start, int originDeadline, int maxLegs) {
+        List<List<Label>> bags = new ArrayList<>(timetable.cityCount());
+        for (int city = 0; city < timetable.cityCount(); city++) {
+            bags.add(new ArrayList<>());
+        }
+        List<Label> destination = bags.get(target);
+        int horizon = start + WeeklyTimetable.MINUTES_PER_WEEK;
+
+        for (int event = timetable.firstDepartureAtOrAfter(start); event < timetable.size(); event++) {
+            int departure = timetable.departureTime(event);
+            if (departure > horizon) {
+                break;
+            }
+
+            int from = timetable.departureCity(event);
+            int to = timetable.arrivalCity(event);
+            // A leg back into the city it left is always dominated by the labels it would extend
+            if (to == origin || to == from) {
+                continue;
+            }
+
+            Connection connection = timetable.connection(event);
+            // A late arrival is not a result, so it must not bound the journeys that are
+            if (to == target && !ConnectionScanEngine.arrivesInTime(connection, criteria)) {
+                continue;
+            }
+            if (from == origin) {
+                if (departure < originDeadline && firstLegFilter.test(connection)) {
+                    offer(bags.get(to), destination, budget, new Label(null, event, departure, timetable));
+                }
+                continue;
+            }
+
+            List<Label> waiting = bags.get(from);
+            if (waiting.isEmpty() || !legFilter.test(connection)) {
+                continue;
+            }
+
+            // Offering into another city never changes this bag, so it is walked in place
+            for (int i = 0; i < waiting.size(); i++) {
+                Label previous = waiting.get(i);
+                if (previous.legs >= maxLegs
+                        || departure < previous.arrival + ConnectionScanEngine.MIN_TRANSFER_MINUTES
+                        || departure - previous.arrival > ConnectionScanEngine.MAX_TRANSFER_MINUTES) {
+                    continue;
+                }
+                offer(bags.get(to), destination, budget, new Label(previous, event, departure, timetable));
+            }
+        }
+        return destination;
+    }
+
+    /**
+     * Adds the label to the bag unless it is dominated there or by a journey that
+     * already reached the destination, dropping the labels it dominates. Labels at
+     * the destination itself are compared on duration rather than on departure
+     * and arrival. Labels over the trip budget are dropped right away.
+     */
+    private static void offer(List<Label> bag, List<Label> destination, FareBudget budget, Label candidate) {
+        if (budget.exceeds(candidate.firstClassFare, candidate.secondClassFare)) {
+            return;
+        }
+
+        for (Label reached : destination) {
+            if (reached.boundsAtDestination(candidate)) {
+                return;
+            }
+        }
+
+        boolean atDestination = bag == destination;
+        if (!atDestination) {
+            for (Label existing : bag) {
+                if (existing.dominates(candidate)) {
+                    return;
+                }
+            }
+        }
+
+        Iterator<Label> iterator = bag.iterator();
+        while (iterator.hasNext()) {
+            Label existing = iterator.next();
+            if (atDestination ? candidate.boundsAtDestination(existing) : candidate.dominates(existing)) {
+                iterator.remove();
+            }
+        }
+        bag.add(candidate);
+    }
+
+    /**
+     * What a found journey offers: its duration, its fares in cents, its legs and
+     * the days of the week it runs as a {@link TrainSchedule} mask.
+     */
+    private record Outcome(long duration, long firstClass, long secondClass, int legs, int days) {
+
+        private Outcome(Trip trip) {
+            this(trip.getTotalDuration().toMinutes(), trip.getTotalFirstClassRate().getCents(),
+                    trip.getTotalSecondClassRate().getCents(), trip.getConnections().size(),
+                    WeeklyTimetable.departureDays(trip.getConnections()));
+        }
+
+        private boolean covers(Outcome other) {
+            return duration <= other.duration
+                    && firstClass <= other.firstClass
+                    && secondClass <= other.secondClass
+                    && legs <= other.legs
+                    && (days & other.days) == other.days;
+        }
+    }
+
+    private static final class Label {
+        private final Label previous;
+        private final int event;
+        private final int start;
+        private final int arrival;
+        private final long firstClassFare;
+        private final long secondClassFare;
+        private final int legs;
+
+        private Label(Label previous, int event, int departure, WeeklyTimetable timetable) {
+            this.previous = previous;
+            this.event = event;
+            this.start = previous == null ? departure : previous.start;
+            this.arrival = timetable.arrivalTime(event);
+            this.firstClassFare = timetable.firstClassFare(event) + (previous == null ? 0 : previous.firstClassFare);
+            this.secondClassFare = timetable.secondClassFare(event)
+                    + (previous == null ? 0 : previous.secondClassFare);
+            this.legs = previous == null ? 1 : previous.legs + 1;
+        }
+
+        /**
+         * Same city: leaving no earlier and arriving no later is at least as good
+         * for every continuation, as long as fares and legs are no worse.
+         */
+        private boolean dominates(Label other) {
+            return start >= other.start
+                    && arrival <= other.arrival
+                    && firstClassFare <= other.firstClassFare
+                    && secondClassFare <= other.secondClassFare
+                    && legs <= other.legs;
+        }
+
+        /**
+         * Every criterion only grows as a journey is extended, so a partial
+         * journey that is already no better than a complete one can be dropped.
+         */
+        private boolean boundsAtDestination(Label partial) {
+            return arrival - start <= partial.arrival - partial.start
+                    && firstClassFare <= partial.firstClassFare
+                    && secondClassFare <= partial.secondClassFare
+                    && legs <= partial.legs;
+        }
+
+        private List<Connection> legs(WeeklyTimetable timetable) {
+            LinkedList<Connection> connections = new LinkedList<>();
+            for (Label label = this; label != null; label = label.previous) {
+                connections.addFirst(timetable.connection(label.event));
+            }
+            return connections;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package railsystem;
+
+/**
+ * Thrown when data the caller relies on could not be written to the database,
+ * for example a booking whose save failed.
+ */
+public class PersistenceException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public PersistenceException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,407 @@
+package railsystem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HTTP/JSON front end for searching and booking, built on the JDK's HTTP
+ * server. Every request runs on its own virtual thread, so a slow search never
+ * holds up the others. Endpoints:
+ * <ul>
+ * <li>{@code GET /search} with the {@link SearchCriteria} fields as query
+ * parameters, plus {@code sort}, {@code limit} and {@code timeBudgetMs}. With a
+ * {@code limit} and neither a time budget nor pruning, only the best trips for
+ * {@code sort} are kept while searching, so {@code count} and later re-sorts
+ * cover just those.</li>
+ * <li>{@code GET /results/{searchId}} to re-sort an earlier search</li>
+ * <li>{@code POST /bookings} to book a trip from an earlier search; 503 if it
+ * could not be saved</li>
+ * <li>{@code GET /cities} and {@code GET /stats}</li>
+ * </ul>
+ * Latency is recorded per endpoint and printed when the server stops.
+ */
+public class RailServer {
+    public static final int DEFAULT_PORT = 8080;
+
+    private static final int SEARCH_HISTORY = 1024;
+    private static final int TRIP_HISTORY = 16384;
+    private static final String JSON_TYPE = "application/json; charset=utf-8";
+
+    // Query parameters in the positional order of Terminal.criteriaOf
+    private static final List<String> CRITERIA_PARAMETERS = List.of(
+            "departureCity", "earliestDeparture", "arrivalCity", "nextDay", "latestArrival", "travelDays",
+            "preferredTrain", "firstClassRate", "secondClassRate", "maxTransfers",
+            "maxTotalFirstClassRate", "maxTotalSecondClassRate");
+
+    private final Terminal terminal;
+    private final int port;
+    private final Map<String, LatencyStats> latencies = new ConcurrentHashMap<>();
+    private final AtomicLong searchIds = new AtomicLong();
+    private final Map<Long, TripOrder> searches = Collections.synchronizedMap(lruMap(SEARCH_HISTORY));
+    private final Map<Long, Trip> trips = Collections.synchronizedMap(lruMap(TRIP_HISTORY));
+    private HttpServer server;
+    private ExecutorService executor;
+    private ConcurrentSearchService searchService;
+    private long startedNanos;
+    private long startupMillis;
+
+    public RailServer(Terminal terminal, int port) {
+        this.terminal = terminal;
+        this.port = port;
+    }
+
+    /**
+     * Starts listening. {@code bootNanos} is the {@link System#nanoTime} at which
+     * the application started, so the reported startup time includes loading
+     * the connections.
+     */
+    public void start(long bootNanos) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        searchService = new ConcurrentSearchService(terminal);
+        server.setExecutor(executor);
+        server.createContext("/search", exchange -> handle(exchange, "GET", "search", this::search));
+        server.createContext("/results/", exchange -> handle(exchange, "GET", "results", this::results));
+        server.createContext("/bookings", exchange -> handle(exchange, "POST", "bookings", this::book));
+        server.createContext("/cities", exchange -> handle(exchange, "GET", "cities", this::cities));
+        server.createContext("/stats", exchange -> handle(exchange, "GET", "stats", this::stats));
+        server.createContext("/", exchange -> handle(exchange, null, "other", request -> {
+            throw new NotFoundException("No endpoint at " + request.getRequestURI().getPath());
+        }));
+        server.start();
+
+        startedNanos = System.nanoTime();
+        startupMillis = (startedNanos - bootNanos) / 1_000_000;
+        System.out.printf("[INFO] Server listening on port %d, started in %d ms.%n", getPort(), startupMillis);
+    }
+
+    /**
+     * Stops accepting requests, waits for those in flight and prints the
+     * latency of each endpoint.
+     */
+    public void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(1);
+        executor.close();
+        searchService.close();
+        server = null;
+        latencies.forEach((endpoint, stats) -> System.out.printf("[INFO] %-8s %s%n", endpoint, stats));
+    }
+
+    public int getPort() {
+        return server == null ? port : server.getAddress().getPort();
+    }
+
+    private interface Handler {
+        Response handle(HttpExchange exchange) throws IOException;
+    }
+
+    private record Response(int status, Object body) {
+    }
+
+    private static final class NotFoundException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private NotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    private void handle(HttpExchange exchange, String method, String endpoint, Handler handler)
+            throws IOException {
+        long start = System.nanoTime();
+        Response response;
+        try {
+            if (method != null && !method.equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", method);
+                response = error(405, "Use " + method + " for /" + endpoint);
+            } else {
+                response = handler.handle(exchange);
+            }
+        } catch (NotFoundException e) {
+            response = error(404, e.getMessage());
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            response = error(400, e.getMessage());
+        } catch (PersistenceException e) {
+            System.err.println("[ERROR] Request " + exchange.getRequestURI() + " failed: " + e.getCause());
+            response = error(503, e.getMessage());
+        } catch (Exception e) {
+            System.err.println("[ERROR] Request " + exchange.getRequestURI() + " failed: " + e);
+            response = error(500, "Internal error");
+        }
+
+        try {
+            byte[] body = Json.write(response.body()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+            exchange.sendResponseHeaders(response.status(), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+            latencies.computeIfAbsent(endpoint, key -> new LatencyStats()).record(System.nanoTime() - start);
+        }
+    }
+
+    private static Response error(int status, String message) {
+        return new Response(status, Map.of("error", message == null ? "Bad request" : message));
+    }
+
+    private Response search(HttpExchange exchange) {
+        Map<String, String> parameters = queryParameters(exchange);
+        String[] args = new String[CRITERIA_PARAMETERS.size()];
+        Arrays.fill(args, "");
+        Terminal.SortOption sortBy = Terminal.SortOption.DURATION;
+        int limit = Integer.MAX_VALUE;
+        Duration timeBudget = null;
+
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            String name = parameter.getKey();
+            String value = parameter.getValue();
+            int position = CRITERIA_PARAMETERS.indexOf(name);
+            if (position >= 0) {
+                args[position] = value;
+            } else if (name.equals("sort")) {
+                sortBy = sortOption(value);
+            } else if (name.equals("limit")) {
+                limit = positive(name, value);
+            } else if (name.equals("timeBudgetMs")) {
+                timeBudget = Duration.ofMillis(positive(name, value));
+            } else {
+                throw new IllegalArgumentException("Unknown parameter: " + name);
+            }
+        }
+
+        SearchCriteria criteria = Terminal.criteriaOf(Arrays.asList(args));
+        SearchResult result;
+        if (limit < Integer.MAX_VALUE && timeBudget == null && !terminal.isPruneDominated()) {
+            // Only the best trips for this sort are kept while searching
+            List<Trip> best = new ArrayList<>(Math.min(limit, TRIP_HISTORY));
+            terminal.searchTopK(criteria, sortBy, limit).forEachRemaining(best::add);
+            result = new SearchResult(best, false);
+        } else {
+            result = searchService.search(criteria, timeBudget);
+        }
+        TripOrder order = new TripOrder(result.getTrips());
+        long searchId = searchIds.incrementAndGet();
+        searches.put(searchId, order);
+        for (Trip trip : result.getTrips()) {
+            trips.put(trip.getId(), trip);
+        }
+
+        Map<String, Object> body = results(searchId, order, sortBy, limit);
+        body.put("partial", result.isPartial());
+        return new Response(200, body);
+    }
+
+    private Response results(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        long searchId;
+        try {
+            searchId = Long.parseLong(path.substring("/results/".length()));
+        } catch (NumberFormatException e) {
+            throw new NotFoundException("No search at " + path);
+        }
+        TripOrder order = searches.get(searchId);
+        if (order == null) {
+            throw new NotFoundException("Search " + searchId + " is unknown or has expired");
+        }
+
+        Terminal.SortOption sortBy = Terminal.SortOption.DURATION;
+        int limit = Integer.MAX_VALUE;
+        for (Map.Entry<String, String> parameter : queryParameters(exchange).entrySet()) {
+            if (parameter.getKey().equals("sort")) {
+                sortBy = sortOption(parameter.getValue());
+            } else if (parameter.getKey().equals("limit")) {
+                limit = positive("limit", parameter.getValue());
+            } else {
+                throw new IllegalArgumentException("Unknown parameter: " + parameter.getKey());
+            }
+        }
+        return new Response(200, results(searchId, order, sortBy, limit));
+    }
+
+    private Map<String, Object> results(long searchId, TripOrder order, Terminal.SortOption sortBy, int limit) {
+        List<Trip> sorted = order.sortedBy(sortBy);
+        List<Object> tripsJson = new ArrayList<>();
+        for (Trip trip : sorted.subList(0, Math.min(limit, sorted.size()))) {
+            tripsJson.add(Json.trip(trip));
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("searchId", searchId);
+        body.put("count", sorted.size());
+        body.put("sort", sortBy.name());
+        body.put("trips", tripsJson);
+        return body;
+    }
+
+    private Response book(HttpExchange exchange) throws IOException {
+        String text;
+        try (InputStream in = exchange.getRequestBody()) {
+            text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        if (!(Json.parse(text) instanceof Map<?, ?> request)) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+
+        if (!(request.get("tripId") instanceof BigDecimal tripId)) {
+            throw new IllegalArgumentException("tripId must be a number");
+        }
+        Trip trip;
+        try {
+            trip = trips.get(tripId.longValueExact());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("tripId must be a whole number");
+        }
+        if (trip == null) {
+            throw new NotFoundException("Trip " + tripId + " is unknown or has expired");
+        }
+
+        Object classRate = request.get("classRate");
+        if (!"First Class".equals(classRate) && !"Second Class".equals(classRate)) {
+            throw new IllegalArgumentException("classRate must be \"First Class\" or \"Second Class\"");
+        }
+
+        if (!(request.get("passengers") instanceof List<?> passengers) || passengers.isEmpty()) {
+            throw new IllegalArgumentException("passengers must be a non-empty list");
+        }
+        ArrayList<String> names = new ArrayList<>();
+        for (Object passenger : passengers) {
+            if (!(passenger instanceof Map<?, ?> fields)) {
+                throw new IllegalArgumentException("Each passenger must be a JSON object");
+            }
+            // Terminal.createBooking splits each passenger on spaces
+            names.add(passengerField(fields, "firstName") + " " + passengerField(fields, "lastName") + " "
+                    + passengerField(fields, "id"));
+        }
+
+        Booking booking = terminal.createBooking(trip, names, (String) classRate);
+
+        List<Object> tickets = new ArrayList<>();
+        for (Ticket ticket : booking.getTickets()) {
+            Map<String, Object> ticketJson = new LinkedHashMap<>();
+            ticketJson.put("ticketId", ticket.getId());
+            ticketJson.put("travellerId", ticket.getTraveller().getId());
+            ticketJson.put("firstName", ticket.getTraveller().getFirstName());
+            ticketJson.put("lastName", ticket.getTraveller().getLastName());
+            ticketJson.put("cost", ticket.getTotalCost());
+            tickets.add(ticketJson);
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("tripId", trip.getId());
+        body.put("classRate", classRate);
+        body.put("tickets", tickets);
+        body.put("totalCost", booking.getTotalBookingCost());
+        return new Response(201, body);
+    }
+
+    private static String passengerField(Map<?, ?> fields, String name) {
+        if (!(fields.get(name) instanceof String value) || value.isEmpty() || !value.equals(value.strip())
+                || value.chars().anyMatch(Character::isWhitespace)) {
+            throw new IllegalArgumentException("Passenger " + name + " must be a single word");
+        }
+        return value;
+    }
+
+    private Response cities(HttpExchange exchange) {
+        List<String> names = new ArrayList<>(City.getAllCities().keySet());
+        Collections.sort(names);
+        return new Response(200, names);
+    }
+
+    private Response stats(HttpExchange exchange) {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        latencies.forEach((endpoint, stats) -> {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("count", stats.getCount());
+            json.put("meanMs", stats.getMeanMillis());
+            json.put("p50Ms", stats.getPercentileMillis(50));
+            json.put("p95Ms", stats.getPercentileMillis(95));
+            json.put("p99Ms", stats.getPercentileMillis(99));
+            json.put("maxMs", stats.getMaxMillis());
+            endpoints.put(endpoint, json);
+        });
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("startupMs", startupMillis);
+        body.put("uptimeMs", (System.nanoTime() - startedNanos) / 1_000_000);
+        body.put("searchCache", terminal.getSearchCache().toString());
+        body.put("endpoints", endpoints);
+        return new Response(200, body);
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            if (parameters.put(name, value) != null) {
+                throw new IllegalArgumentException("Parameter given more than once: " + name);
+            }
+        }
+        return parameters;
+    }
+
+    private static Terminal.SortOption sortOption(String value) {
+        try {
+            return Terminal.SortOption.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown sort option: " + value + ", expected one of "
+                    + Arrays.toString(Terminal.SortOption.values()));
+        }
+    }
+
+    private static int positive(String name, String value) {
+        int number;
+        try {
+            number = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a positive integer");
+        }
+        if (number <= 0) {
+            throw new IllegalArgumentException(name + " must be a positive integer");
+        }
+        return number;
+    }
+
+    private static <K, V> Map<K, V> lruMap(int capacity) {
+        return new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+}
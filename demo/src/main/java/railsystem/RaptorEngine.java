@@ -0,0 +1,181 @@
+package railsystem;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Round-based (RAPTOR) journey engine. Departures are grouped into route
+ * patterns of the {@link WeeklyTimetable}; round {@code k} finds the earliest
+ * arrivals using exactly {@code k} legs, so the rounds that improve the arrival
+ * at the destination form the Pareto set of arrival time versus transfers.
+ */
+final class RaptorEngine implements JourneyEngine {
+    static final int DEFAULT_MAX_TRANSFERS = 5;
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    @Override
+    public List<Trip> findJourneys(ConnectionRepository repository, SearchCriteria criteria) {
+        if (criteria.getDepartureCity() == null || criteria.getArrivalCity() == null
+                || !City.exists(criteria.getDepartureCity()) || !City.exists(criteria.getArrivalCity())) {
+            return new ArrayList<>();
+        }
+
+        WeeklyTimetable timetable = repository.getWeeklyTimetable();
+        int origin = timetable.cityId(City.getInstance(criteria.getDepartureCity()));
+        int target = timetable.cityId(City.getInstance(criteria.getArrivalCity()));
+        if (origin < 0 || target < 0 || origin == target) {
+            return new ArrayList<>();
+        }
+
+        int maxTransfers = criteria.getMaxTransfers() == null ? DEFAULT_MAX_TRANSFERS
+                : Math.max(0, criteria.getMaxTransfers());
+        int earliestMinute = criteria.getEarliestDeparture() == null ? 0
+                : criteria.getEarliestDeparture().toSecondOfDay() / 60;
+        Set<DayOfWeek> travelDays = criteria.getTravelDays();
+        Predicate<Connection> firstLegFilter = ConnectionScanEngine.firstLegFilter(criteria);
+        Predicate<Connection> legFilter = ConnectionScanEngine.legFilter(criteria);
+
+        Map<List<String>, Trip> journeys = new LinkedHashMap<>();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (travelDays != null && !travelDays.isEmpty() && !travelDays.contains(day)) {
+                continue;
+            }
+
+            int dayStart = (day.getValue() - 1) * WeeklyTimetable.MINUTES_PER_DAY;
+            for (List<Connection> legs : route(timetable, firstLegFilter, legFilter, origin, target,
+                    dayStart + earliestMinute, dayStart + WeeklyTimetable.MINUTES_PER_DAY, maxTransfers + 1)) {
+                if (!ConnectionScanEngine.arrivesInTime(legs, criteria)) {
+                    continue;
+                }
+                List<String> key = legs.stream().map(Connection::getRouteId).toList();
+                if (!journeys.containsKey(key)) {
+                    journeys.put(key, new Trip(legs));
+                }
+            }
+        }
+        return new ArrayList<>(journeys.values());
+    }
+
+    /**
+     * Runs up to {@code maxRounds} rounds from {@code origin} and returns one
+     * itinerary for every round that improved the arrival at {@code target}.
+     */
+    private List<List<Connection>> route(WeeklyTimetable timetable, Predicate<Connection> firstLegFilter,
+            Predicate<Connection> legFilter, int origin, int target, int start, int originDeadline, int maxRounds) {
+        int cityCount = timetable.cityCount();
+        int[][] arrival = new int[maxRounds + 1][cityCount];
+        int[][] reachedBy = new int[maxRounds + 1][cityCount];
+        int[][] reachedInRound = new int[maxRounds + 1][cityCount];
+        for (int round = 0; round <= maxRounds; round++) {
+            Arrays.fill(arrival[round], UNREACHED);
+            Arrays.fill(reachedBy[round], -1);
+        }
+        arrival[0][origin] = start;
+
+        boolean[] marked = new boolean[cityCount];
+        marked[origin] = true;
+        int horizon = start + WeeklyTimetable.MINUTES_PER_WEEK;
+        List<List<Connection>> front = new ArrayList<>();
+
+        for (int round = 1; round <= maxRounds; round++) {
+            // Labels carry over, so round k holds the best arrival with at most k legs
+            System.arraycopy(arrival[round - 1], 0, arrival[round], 0, cityCount);
+            System.arraycopy(reachedBy[round - 1], 0, reachedBy[round], 0, cityCount);
+            System.arraycopy(reachedInRound[round - 1], 0, reachedInRound[round], 0, cityCount);
+
+            boolean[] nextMarked = new boolean[cityCount];
+            boolean anyMarked = false;
+
+            for (int from = 0; from < cityCount; from++) {
+                if (!marked[from]) {
+                    continue;
+                }
+
+                boolean atOrigin = from == origin;
+                int ready = arrival[round - 1][from];
+                int earliest = atOrigin ? ready : ready + ConnectionScanEngine.MIN_TRANSFER_MINUTES;
+                int latest = atOrigin ? originDeadline - 1 : ready + ConnectionScanEngine.MAX_TRANSFER_MINUTES;
+
+                for (int route : timetable.routesFrom(from)) {
+                    int event = boardableEvent(timetable, atOrigin ? firstLegFilter : legFilter, route, earliest,
+                            Math.min(latest, horizon));
+                    if (event < 0) {
+                        continue;
+                    }
+
+                    int to = timetable.arrivalCity(event);
+                    int arrivalTime = timetable.arrivalTime(event);
+                    if (to == origin || arrivalTime >= arrival[round][to] || arrivalTime >= arrival[round][target]) {
+                        continue;
+                    }
+
+                    arrival[round][to] = arrivalTime;
+                    reachedBy[round][to] = event;
+                    reachedInRound[round][to] = round;
+                    nextMarked[to] = true;
+                    anyMarked = true;
+                }
+            }
+
+            if (arrival[round][target] < arrival[round - 1][target]) {
+                front.add(reconstruct(timetable, reachedBy, reachedInRound, round, target));
+            }
+            if (!anyMarked) {
+                break;
+            }
+            marked = nextMarked;
+        }
+        return front;
+    }
+
+    /**
+     * Departure of the route in [{@code earliest}, {@code latest}] that passes
+     * the leg filters and arrives first, or -1 if there is none. Departures of a
+     * pattern may overtake each other, so the first one to leave is not always
+     * the first one to arrive.
+     */
+    private static int boardableEvent(WeeklyTimetable timetable, Predicate<Connection> filter, int route,
+            int earliest, int latest) {
+        int[] events = timetable.routeEvents(route);
+        int low = 0;
+        int high = events.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timetable.departureTime(events[mid]) < earliest) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        int best = -1;
+        for (int i = low; i < events.length && timetable.departureTime(events[i]) <= latest; i++) {
+            if ((best < 0 || timetable.arrivalTime(events[i]) < timetable.arrivalTime(best))
+                    && filter.test(timetable.connection(events[i]))) {
+                best = events[i];
+            }
+        }
+        return best;
+    }
+
+    private static List<Connection> reconstruct(WeeklyTimetable timetable, int[][] reachedBy,
+            int[][] reachedInRound, int round, int city) {
+        LinkedList<Connection> legs = new LinkedList<>();
+        while (round > 0 && reachedBy[round][city] >= 0) {
+            int event = reachedBy[round][city];
+            int labelRound = reachedInRound[round][city];
+            legs.addFirst(timetable.connection(event));
+            city = timetable.departureCity(event);
+            round = labelRound - 1;
+        }
+        return legs;
+    }
+}
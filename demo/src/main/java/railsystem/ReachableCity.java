@@ -0,0 +1,20 @@
+package railsystem;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+
+import lombok.Value;
+
+/**
+ * Earliest arrival at a city in a one-to-all query. The travel time is counted
+ * from the requested departure time, including any wait at the origin.
+ */
+@Value
+public class ReachableCity {
+    City city;
+    DayOfWeek arrivalDay;
+    LocalTime arrivalTime;
+    Duration travelTime;
+    int transfers;
+}
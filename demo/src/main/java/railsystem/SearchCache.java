@@ -0,0 +1,105 @@
+package railsystem;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Size-bounded LRU cache of search results. Entries belong to one version of the
+ * timetable; the first lookup made against a newer version drops them all at
+ * once.
+ */
+public class SearchCache {
+    private final int capacity;
+    private final LinkedHashMap<Object, List<Trip>> entries;
+    private long timetableVersion = -1;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public SearchCache(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, List<Trip>> eldest) {
+                if (size() > SearchCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a mutable copy of the cached trips for {@code key}, or null on a
+     * miss or when the entry was computed for another timetable version.
+     */
+    public synchronized List<Trip> get(Object key, long version) {
+        syncVersion(version);
+        List<Trip> trips = entries.get(key);
+        if (trips == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return new ArrayList<>(trips);
+    }
+
+    public synchronized void put(Object key, long version, List<Trip> trips) {
+        syncVersion(version);
+        if (capacity > 0) {
+            entries.put(key, List.copyOf(trips));
+        }
+    }
+
+    public synchronized void invalidate() {
+        if (!entries.isEmpty()) {
+            entries.clear();
+            invalidations++;
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SearchCache[size=" + entries.size() + "/" + capacity + ", hits=" + hits + ", misses=" + misses
+                + ", evictions=" + evictions + ", invalidations=" + invalidations + "]";
+    }
+
+    private void syncVersion(long version) {
+        if (version != timetableVersion) {
+            invalidate();
+            timetableVersion = version;
+        }
+    }
+}
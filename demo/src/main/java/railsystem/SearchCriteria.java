@@ -3,7 +3,12 @@ package railsystem;
 import java.math.BigDecimal;
 import java.time.DayOfWeek;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Predicate;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -24,6 +29,10 @@ public class SearchCriteria {
     private Set<DayOfWeek> travelDays;
     private BigDecimal firstClassRate;
     private BigDecimal secondClassRate;
+    private Integer maxTransfers;
+    // Budgets for the whole trip, as opposed to the per-leg rate caps above
+    private BigDecimal maxTotalFirstClassRate;
+    private BigDecimal maxTotalSecondClassRate;
 
     public SearchCriteria(SearchCriteria other) {
         this.departureCity = other.departureCity;
@@ -35,6 +44,122 @@ public class SearchCriteria {
         this.travelDays = other.travelDays;
         this.firstClassRate = other.firstClassRate;
         this.secondClassRate = other.secondClassRate;
+        this.maxTransfers = other.maxTransfers;
+        this.maxTotalFirstClassRate = other.maxTotalFirstClassRate;
+        this.maxTotalSecondClassRate = other.maxTotalSecondClassRate;
+    }
+
+    /**
+     * Returns a canonical copy: names trimmed, an empty day set treated as no
+     * constraint, days as an immutable EnumSet and rates without trailing zeros.
+     * Criteria that search for the same thing compare equal once normalized.
+     */
+    public SearchCriteria normalized() {
+        SearchCriteria copy = new SearchCriteria(this);
+        copy.departureCity = trimToNull(departureCity);
+        copy.arrivalCity = trimToNull(arrivalCity);
+        copy.preferredTrain = trimToNull(preferredTrain);
+        copy.travelDays = travelDays == null || travelDays.isEmpty() ? null
+                : Collections.unmodifiableSet(EnumSet.copyOf(travelDays));
+        copy.firstClassRate = firstClassRate == null ? null : firstClassRate.stripTrailingZeros();
+        copy.secondClassRate = secondClassRate == null ? null : secondClassRate.stripTrailingZeros();
+        copy.maxTotalFirstClassRate = maxTotalFirstClassRate == null ? null
+                : maxTotalFirstClassRate.stripTrailingZeros();
+        copy.maxTotalSecondClassRate = maxTotalSecondClassRate == null ? null
+                : maxTotalSecondClassRate.stripTrailingZeros();
+        return copy;
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value.trim();
+    }
+
+    /**
+     * Turns the criteria into a predicate once per query. Only the constraints
+     * that are set are checked; cities and trains are compared by identity with
+     * their interned instances, and times, days and fares as primitives. Accepts
+     * exactly the connections {@link #matches} accepts.
+     */
+    public Predicate<Connection> compile() {
+        List<Predicate<Connection>> checks = new ArrayList<>();
+
+        if (departureCity != null) {
+            City city = City.getAllCities().get(departureCity);
+            if (city == null) {
+                return connection -> false;
+            }
+            checks.add(connection -> connection.getDepartureStop().getCity() == city);
+        }
+
+        if (arrivalCity != null) {
+            City city = City.getAllCities().get(arrivalCity);
+            if (city == null) {
+                return connection -> false;
+            }
+            checks.add(connection -> connection.getArrivalStop().getCity() == city);
+        }
+
+        if (preferredTrain != null) {
+            Train train = Train.getAllTrains().get(preferredTrain);
+            if (train == null) {
+                return connection -> false;
+            }
+            checks.add(connection -> connection.getTrain() == train);
+        }
+
+        if (earliestDeparture != null) {
+            long earliest = earliestDeparture.toNanoOfDay();
+            checks.add(connection -> connection.getDepartureStop().getScheduledStop().toNanoOfDay() >= earliest);
+        }
+
+        if (latestArrival != null) {
+            long latest = latestArrival.toNanoOfDay();
+            checks.add(connection -> connection.getArrivalStop().getScheduledStop().toNanoOfDay() <= latest);
+        }
+
+        if (nextDay != null) {
+            boolean expected = nextDay;
+            checks.add(connection -> connection.getArrivalStop().isNextDay() == expected);
+        }
+
+        if (travelDays != null && !travelDays.isEmpty()) {
+            int mask = TrainSchedule.maskOf(travelDays);
+            checks.add(connection -> connection.getSchedule().operatesOnAll(mask));
+        }
+
+        if (firstClassRate != null) {
+            long cap = Money.floorCents(firstClassRate);
+            checks.add(connection -> connection.getTicketRates().getFirstClass().getCents() <= cap);
+        }
+
+        if (secondClassRate != null) {
+            long cap = Money.floorCents(secondClassRate);
+            checks.add(connection -> connection.getTicketRates().getSecondClass().getCents() <= cap);
+        }
+
+        if (maxTotalFirstClassRate != null) {
+            long budget = Money.floorCents(maxTotalFirstClassRate);
+            checks.add(connection -> connection.getTicketRates().getFirstClass().getCents() <= budget);
+        }
+
+        if (maxTotalSecondClassRate != null) {
+            long budget = Money.floorCents(maxTotalSecondClassRate);
+            checks.add(connection -> connection.getTicketRates().getSecondClass().getCents() <= budget);
+        }
+
+        return checks.stream().reduce(Predicate::and).orElse(connection -> true);
+    }
+
+    /**
+     * True if the trip's total fares are within the trip budgets, if any.
+     */
+    public boolean isWithinBudget(Trip trip) {
+        return (maxTotalFirstClassRate == null || trip.getTotalFirstClassRate().isAtMost(maxTotalFirstClassRate))
+                && (maxTotalSecondClassRate == null
+                        || trip.getTotalSecondClassRate().isAtMost(maxTotalSecondClassRate));
     }
 
     public boolean matches(Connection connection) {
@@ -71,17 +196,28 @@ public class SearchCriteria {
         }
 
         if (travelDays != null &&
-                !connection.getSchedule().getOperatingDays().containsAll(travelDays)) {
+                !connection.getSchedule().operatesOnAll(TrainSchedule.maskOf(travelDays))) {
             return false;
         }
 
         if (firstClassRate != null &&
-                connection.getTicketRates().getFirstClass().compareTo(firstClassRate) > 0) {
+                !connection.getTicketRates().getFirstClass().isAtMost(firstClassRate)) {
             return false;
         }
 
         if (secondClassRate != null &&
-                connection.getTicketRates().getSecondClass().compareTo(secondClassRate) > 0) {
+                !connection.getTicketRates().getSecondClass().isAtMost(secondClassRate)) {
+            return false;
+        }
+
+        // A single connection is a whole trip, so it must also fit the budgets
+        if (maxTotalFirstClassRate != null &&
+                !connection.getTicketRates().getFirstClass().isAtMost(maxTotalFirstClassRate)) {
+            return false;
+        }
+
+        if (maxTotalSecondClassRate != null &&
+                !connection.getTicketRates().getSecondClass().isAtMost(maxTotalSecondClassRate)) {
             return false;
         }
 
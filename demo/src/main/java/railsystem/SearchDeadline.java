@@ -0,0 +1,49 @@
+package railsystem;
+
+import java.time.Duration;
+
+/**
+ * Time budget of a single search. Searches poll {@link #isExpired()} between
+ * units of work and stop on their own once it returns true, so cancellation is
+ * cooperative and never interrupts a thread.
+ */
+final class SearchDeadline {
+    static final SearchDeadline NONE = new SearchDeadline(Long.MAX_VALUE);
+
+    private final long deadlineNanos;
+    private volatile boolean reached;
+
+    private SearchDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * A deadline {@code budget} from now, or {@link #NONE} if the budget is null.
+     */
+    static SearchDeadline after(Duration budget) {
+        if (budget == null) {
+            return NONE;
+        }
+        if (budget.isNegative()) {
+            throw new IllegalArgumentException("Time budget cannot be negative");
+        }
+        return new SearchDeadline(System.nanoTime() + budget.toNanos());
+    }
+
+    boolean isExpired() {
+        if (this == NONE) {
+            return false;
+        }
+        if (!reached && System.nanoTime() - deadlineNanos >= 0) {
+            reached = true;
+        }
+        return reached;
+    }
+
+    /**
+     * True once some check found the deadline expired, meaning work was skipped.
+     */
+    boolean wasReached() {
+        return reached;
+    }
+}
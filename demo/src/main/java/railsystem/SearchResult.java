@@ -0,0 +1,16 @@
+package railsystem;
+
+import java.util.List;
+
+import lombok.Value;
+
+/**
+ * Trips found by a time-bounded search. When {@code partial} is true the time
+ * budget ran out first: the trips are the best found until then, sorted by
+ * duration, and some itineraries may be missing.
+ */
+@Value
+public class SearchResult {
+    List<Trip> trips;
+    boolean partial;
+}
@@ -44,6 +44,9 @@ public class SearchService {
      * Handles the sorting menu and actions after a search.
      */
     private void handleSearchResults(List<Trip> searchResult) {
+        // Orderings are computed once per sort option and reused when switching back
+        TripOrder orders = new TripOrder(searchResult);
+        List<Trip> displayed = searchResult;
         boolean continueViewing = true;
         while (continueViewing) {
             try {
@@ -52,13 +55,13 @@ public class SearchService {
                 Terminal.SortOption sortOption = menuSystem.getSortOption(sortChoice);
 
                 if (sortChoice.equals("7")) {
-                    handleBookingCreation(searchResult);
+                    handleBookingCreation(displayed);
                 } else if (sortChoice.equals("0")) {
                     continueViewing = false;
                     menuSystem.displayGoodbye();
                 } else if (sortOption != null) {
-                    terminal.sortTrips(searchResult, sortOption);
-                    terminal.displayTrips(searchResult, sortOption);
+                    displayed = orders.sortedBy(sortOption);
+                    terminal.displayTrips(displayed, sortOption);
                 } else {
                     menuSystem.displayInvalidChoice();
                 }
@@ -87,6 +90,9 @@ public class SearchService {
                     request.getClassRate());
 
             if (booking != null) {
+                if (terminal.getDbManager() != null) {
+                    System.out.println("✓ Booking saved successfully!");
+                }
                 System.out.println("\n [INFO] Booking successful!");
                 System.out.println(booking);
             } else {
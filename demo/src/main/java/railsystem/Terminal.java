@@ -5,29 +5,49 @@ import java.time.LocalTime;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Iterator;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Locale;
 import java.util.Comparator;
 
 final class Terminal {
-    private static Terminal instance;
+    private static final int SEARCH_CACHE_CAPACITY = 256;
+
     private Loader loader;
-    private ConnectionRepository connectionRepo;
-    private DBManager dbManager;
+    private volatile ConnectionRepository connectionRepo;
+    private volatile DBManager dbManager;
+    private volatile SearchEngine searchEngine;
+    private volatile boolean parallelSearch;
+    private volatile boolean pruneDominated;
+    private volatile Duration searchTimeBudget;
+    private volatile boolean verbose = true;
+    private final SearchCache searchCache;
 
     private Terminal() {
         this.loader = new Loader();
         this.connectionRepo = null;
         this.dbManager = null;
+        this.searchEngine = SearchEngine.NESTED_LOOP;
+        this.searchCache = new SearchCache(SEARCH_CACHE_CAPACITY);
+    }
+
+    // Initialized by the class loader on first use, so creation is thread-safe without locking
+    private static final class Holder {
+        private static final Terminal INSTANCE = new Terminal();
     }
 
     public static Terminal getInstance() {
-        if (instance == null) {
-            instance = new Terminal();
-        }
-        return instance;
+        return Holder.INSTANCE;
     }
 
     public Loader getLoader() {
@@ -40,6 +60,11 @@ final class Terminal {
 
     public void setConnectionRepo(ConnectionRepository connectionRepo) {
         this.connectionRepo = connectionRepo;
+        searchCache.invalidate();
+    }
+
+    public SearchCache getSearchCache() {
+        return searchCache;
     }
 
     public void setDbManager(DBManager dbManager) {
@@ -50,7 +75,78 @@ final class Terminal {
         return dbManager;
     }
 
+    public SearchEngine getSearchEngine() {
+        return searchEngine;
+    }
+
+    public void setSearchEngine(SearchEngine searchEngine) {
+        this.searchEngine = searchEngine;
+    }
+
+    public boolean isParallelSearch() {
+        return parallelSearch;
+    }
+
+    /**
+     * When enabled, the nested-loop transfer search expands first legs on the
+     * common ForkJoinPool. Results are identical to the sequential search.
+     */
+    public void setParallelSearch(boolean parallelSearch) {
+        this.parallelSearch = parallelSearch;
+    }
+
+    public boolean isPruneDominated() {
+        return pruneDominated;
+    }
+
+    /**
+     * When enabled, searches drop itineraries that another result between the
+     * same cities beats on departure, arrival, both fares and transfers, and
+     * exact duplicates, before sorting.
+     */
+    public void setPruneDominated(boolean pruneDominated) {
+        this.pruneDominated = pruneDominated;
+        searchCache.invalidate();
+    }
+
+    public boolean isVerbose() {
+        return verbose;
+    }
+
+    /**
+     * When disabled, searches no longer print their progress and statistics to
+     * standard output. Used by the server and batch modes, where many searches
+     * run at once and the output is reserved for results.
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    public Duration getSearchTimeBudget() {
+        return searchTimeBudget;
+    }
+
+    /**
+     * Time budget for interactive searches, or null for none. Once it runs out
+     * the search shows the best trips found so far.
+     */
+    public void setSearchTimeBudget(Duration searchTimeBudget) {
+        this.searchTimeBudget = searchTimeBudget;
+    }
+
     public List<Trip> createSearch(List<String> args) {
+        List<Trip> trips = searchWithCache(criteriaOf(args));
+        return trips;
+    }
+
+    /**
+     * Builds criteria from the positional search arguments used by the menu:
+     * departure city, earliest departure, arrival city, next day, latest
+     * arrival, travel days, train type, first and second class rate, maximum
+     * transfers and the first and second class trip budgets. Empty arguments
+     * are left unset.
+     */
+    static SearchCriteria criteriaOf(List<String> args) {
         SearchCriteria criteria = new SearchCriteria();
 
         if (args.size() > 0 && !args.get(0).isEmpty()) {
@@ -71,8 +167,7 @@ final class Terminal {
         if (args.size() > 5 && !args.get(5).isEmpty()) {
             String[] days = args.get(5).split(",");
             Set<DayOfWeek> travelDays = Arrays.stream(days)
-                    .map(String::toUpperCase)
-                    .map(DayOfWeek::valueOf)
+                    .map(day -> DayOfWeek.valueOf(day.toUpperCase(Locale.ROOT)))
                     .collect(Collectors.toSet());
             criteria.setTravelDays(travelDays);
         }
@@ -85,9 +180,51 @@ final class Terminal {
         if (args.size() > 8 && !args.get(8).isEmpty()) {
             criteria.setSecondClassRate(new BigDecimal(args.get(8)));
         }
+        if (args.size() > 9 && !args.get(9).isEmpty()) {
+            criteria.setMaxTransfers(Integer.parseInt(args.get(9)));
+        }
+        if (args.size() > 10 && !args.get(10).isEmpty()) {
+            criteria.setMaxTotalFirstClassRate(new BigDecimal(args.get(10)));
+        }
+        if (args.size() > 11 && !args.get(11).isEmpty()) {
+            criteria.setMaxTotalSecondClassRate(new BigDecimal(args.get(11)));
+        }
+        return criteria;
+    }
 
-        List<Trip> trips = searchForConnections(criteria);
-        return trips;
+    private List<Trip> searchWithCache(SearchCriteria criteria) {
+        Duration timeBudget = searchTimeBudget;
+        SearchResult result = searchWithCache(criteria, timeBudget);
+        if (result.isPartial()) {
+            info("[WARN] Search time budget of %d ms ran out; showing the %d best trip(s) "
+                    + "found so far.%n%n", timeBudget.toMillis(), result.getTrips().size());
+        }
+        return result.getTrips();
+    }
+
+    /**
+     * Answers the search from the result cache when the same normalized criteria
+     * were already searched with the current engine and timetable version.
+     * Complete results are cached; partial ones are returned but never cached.
+     */
+    public SearchResult searchWithCache(SearchCriteria criteria, Duration timeBudget) {
+        ConnectionRepository repo = pinnedRepo();
+        SearchCriteria normalized = criteria.normalized();
+        SearchEngine engine = searchEngine;
+        List<Object> key = List.of(engine, normalized);
+        long version = repo.getVersion();
+
+        List<Trip> cached = searchCache.get(key, version);
+        if (cached != null) {
+            info("%nFound %d trip(s) in the search cache.%n%n", cached.size());
+            return new SearchResult(cached, false);
+        }
+
+        SearchResult result = search(repo, engine, normalized, timeBudget);
+        if (!result.isPartial()) {
+            searchCache.put(key, version, result.getTrips());
+        }
+        return result;
     }
 
     public Booking createBooking(Trip trip, ArrayList<String> names, String classRate) {
@@ -105,7 +242,15 @@ final class Terminal {
         // Save booking (which will also save trip and travellers) if dbManager is
         // available
         if (dbManager != null) {
-            dbManager.saveBooking(booking);
+            try {
+                dbManager.saveBooking(booking);
+            } catch (PersistenceException e) {
+                // Do not keep tickets that were never saved
+                for (Ticket ticket : tickets) {
+                    ticket.getTraveller().getTickets().removeIf(kept -> kept == ticket);
+                }
+                throw e;
+            }
         }
 
         return booking;
@@ -130,40 +275,41 @@ final class Terminal {
         }
     }
 
+    public enum SearchEngine {
+        NESTED_LOOP("Nested loops (up to 3 legs)", null),
+        CONNECTION_SCAN("Connection Scan (earliest arrival, any transfers)", new ConnectionScanEngine()),
+        RAPTOR("RAPTOR (arrival vs. transfers trade-offs, max " + RaptorEngine.DEFAULT_MAX_TRANSFERS
+                + " transfers by default)", new RaptorEngine()),
+        PARETO("Pareto front (duration, fares and transfers)", new ParetoEngine());
+
+        private final String description;
+        private final JourneyEngine engine;
+
+        SearchEngine(String description, JourneyEngine engine) {
+            this.description = description;
+            this.engine = engine;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        JourneyEngine getEngine() {
+            return engine;
+        }
+    }
+
+    /**
+     * Sorts the list in place, stably, on the trips' primitive sort keys.
+     */
     public void sortTrips(List<Trip> trips, SortOption sortBy) {
-        switch (sortBy) {
-            case DURATION:
-                trips.sort(Comparator.comparing(Trip::getTotalDuration));
-                break;
-            case PRICE_FIRST_CLASS:
-                trips.sort(Comparator.comparing(Trip::getTotalFirstClassRate));
-                break;
-            case PRICE_SECOND_CLASS:
-                trips.sort(Comparator.comparing(Trip::getTotalSecondClassRate));
-                break;
-            case DEPARTURE_TIME:
-                trips.sort((t1, t2) -> {
-                    LocalTime time1 = t1.getConnections().get(0).getDepartureStop().getScheduledStop();
-                    LocalTime time2 = t2.getConnections().get(0).getDepartureStop().getScheduledStop();
-                    return time1.compareTo(time2);
-                });
-                break;
-            case ARRIVAL_TIME:
-                trips.sort((t1, t2) -> {
-                    Connection last1 = t1.getConnections().get(t1.getConnections().size() - 1);
-                    Connection last2 = t2.getConnections().get(t2.getConnections().size() - 1);
-                    int dayCompare = Boolean.compare(last1.getArrivalStop().isNextDay(),
-                            last2.getArrivalStop().isNextDay());
-                    if (dayCompare != 0)
-                        return dayCompare;
-                    return last1.getArrivalStop().getScheduledStop()
-                            .compareTo(last2.getArrivalStop().getScheduledStop());
-                });
-                break;
-            case TRANSFERS:
-                trips.sort(Comparator.comparing((Trip t) -> t.getConnections().size())
-                        .thenComparing(Trip::getTotalDuration));
-                break;
+        int[] order = TripOrder.permutation(trips, sortBy);
+        Trip[] sorted = new Trip[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = trips.get(order[i]);
+        }
+        for (int i = 0; i < sorted.length; i++) {
+            trips.set(i, sorted[i]);
         }
     }
 
@@ -216,188 +362,468 @@ final class Terminal {
     }
 
     public List<Trip> searchForConnections(SearchCriteria criteria) {
-        if (connectionRepo == null) {
-            throw new IllegalStateException("Connection repository is not set.");
-        }
+        return searchForConnections(criteria, null).getTrips();
+    }
+
+    /**
+     * Same search as {@link #searchForConnections(SearchCriteria)}, but stops
+     * expanding transfers once {@code timeBudget} has elapsed and returns the
+     * trips found so far, flagged as partial. A null budget means no limit. The
+     * journey engines always run to completion.
+     */
+    public SearchResult searchForConnections(SearchCriteria criteria, Duration timeBudget) {
+        return search(pinnedRepo(), searchEngine, criteria, timeBudget);
+    }
 
-        System.out.println("\nSearching for connections...\n");
+    /**
+     * Runs one search against a pinned repository with the given engine, so the
+     * whole search sees one snapshot and one configuration.
+     */
+    private SearchResult search(ConnectionRepository repo, SearchEngine engine, SearchCriteria criteria,
+            Duration timeBudget) {
+        SearchDeadline deadline = SearchDeadline.after(timeBudget);
+        boolean parallel = parallelSearch;
+        boolean prune = pruneDominated;
 
-        List<Connection> directConnections = connectionRepo.search(criteria);
+        info("%nSearching for connections...%n%n");
+
+        List<Connection> directConnections = repo.search(criteria);
 
         List<Trip> trips = directConnections.stream()
                 .map(conn -> new Trip(List.of(conn)))
                 .collect(Collectors.toList());
 
         if (!trips.isEmpty()) {
-            System.out.printf("Found %d direct connection(s).%n%n", trips.size());
+            info("Found %d direct connection(s).%n%n", trips.size());
+            trips = pruneIfEnabled(trips, prune);
             sortTrips(trips, SortOption.DURATION);
-            return trips;
+            return new SearchResult(trips, false);
         }
 
-        System.out.println("No direct connections found.");
+        info("No direct connections found.%n");
 
-        if (criteria.getDepartureCity() == null || criteria.getArrivalCity() == null) {
+        if (criteria.getDepartureCity() == null || criteria.getArrivalCity() == null
+                || (criteria.getMaxTransfers() != null && criteria.getMaxTransfers() < 1)) {
+            return new SearchResult(trips, false);
+        }
+
+        info("Searching for connections with transfers...%n%n");
+
+        if (engine.getEngine() != null) {
+            for (Trip trip : engine.getEngine().findJourneys(repo, criteria)) {
+                if (criteria.isWithinBudget(trip)) {
+                    trips.add(trip);
+                }
+            }
+            trips = pruneIfEnabled(trips, prune);
+            sortTrips(trips, SortOption.DURATION);
+            return new SearchResult(trips, false);
+        }
+
+        List<Connection> firstLegs = findFirstLegs(repo, criteria);
+        // Sequential expansion prunes as it goes, so dominated trips are never kept
+        DominanceFilter inline = prune && !parallel ? new DominanceFilter() : null;
+        FareBudget budget = new FareBudget(criteria, null);
+        LegMemo legs = new LegMemo(repo, criteria);
+
+        List<Trip> transferTrips;
+        if (parallel) {
+            // Ordered stream: partial lists are concatenated in first-leg order
+            transferTrips = firstLegs.parallelStream()
+                    .map(firstLeg -> {
+                        List<List<Connection>> found = new ArrayList<>();
+                        if (!deadline.isExpired()) {
+                            expandFirstLeg(criteria, firstLeg, budget, legs, deadline, found::add);
+                        }
+                        return found;
+                    })
+                    .flatMap(List::stream)
+                    .map(Trip::new)
+                    .collect(Collectors.toList());
+        } else {
+            transferTrips = new ArrayList<>();
+            for (Connection firstLeg : firstLegs) {
+                if (deadline.isExpired()) {
+                    break;
+                }
+                expandFirstLeg(criteria, firstLeg, budget, legs, deadline,
+                        inline != null ? found -> inline.offer(new Trip(found))
+                                : found -> transferTrips.add(new Trip(found)));
+            }
+        }
+
+        if (inline != null) {
+            reportPruned(inline);
+            trips.addAll(inline.getTrips());
+        } else {
+            trips.addAll(pruneIfEnabled(transferTrips, prune));
+        }
+
+        sortTrips(trips, SortOption.DURATION);
+        return new SearchResult(trips, deadline.wasReached());
+    }
+
+    private List<Trip> pruneIfEnabled(List<Trip> trips, boolean prune) {
+        if (!prune) {
             return trips;
         }
+        DominanceFilter filter = DominanceFilter.filter(trips);
+        reportPruned(filter);
+        return filter.getTrips();
+    }
 
-        System.out.println("Searching for connections with transfers...\n");
+    private void reportPruned(DominanceFilter filter) {
+        if (filter.getPrunedCount() > 0) {
+            info("[INFO] Pruned %d dominated or duplicate itinerary(ies).%n%n", filter.getPrunedCount());
+        }
+    }
 
-        List<Connection> firstLegs = connectionRepo.search(
-                SearchCriteria.builder()
-                        .departureCity(criteria.getDepartureCity())
-                        .earliestDeparture(criteria.getEarliestDeparture())
-                        .preferredTrain(criteria.getPreferredTrain())
-                        .travelDays(criteria.getTravelDays())
-                        .firstClassRate(criteria.getFirstClassRate())
-                        .secondClassRate(criteria.getSecondClassRate())
-                        .build());
+    /**
+     * Runs the same search as {@link #searchForConnections} but only keeps the
+     * best {@code k} itineraries for {@code sortBy} while searching, so memory is
+     * bounded by {@code k} rather than by the number of matches. The iterator is
+     * pull-based: the search runs against the timetable current at this call
+     * when the first trip is asked for, and each Trip object is only built when
+     * it is pulled, in the order {@link #sortTrips} would produce. When ranking
+     * by price, branches dearer than the k-th best trip found so far are cut.
+     * Pruning dominated trips and time budgets do not apply.
+     */
+    public Iterator<Trip> searchTopK(SearchCriteria criteria, SortOption sortBy, int k) {
+        ConnectionRepository repo = pinnedRepo();
+        SearchEngine engine = searchEngine;
+        boolean parallel = parallelSearch;
+        SearchCriteria normalized = criteria.normalized();
+
+        return new Iterator<>() {
+            private Iterator<Trip> ranked;
+
+            @Override
+            public boolean hasNext() {
+                return ranked().hasNext();
+            }
 
-        for (Connection firstLeg : firstLegs) {
-            String transferCity = firstLeg.getArrivalStop().getCity().getName();
+            @Override
+            public Trip next() {
+                return ranked().next();
+            }
 
-            if (transferCity.equals(firstLeg.getDepartureStop().getCity().getName())) // Prevent loops
-                continue;
+            private Iterator<Trip> ranked() {
+                if (ranked == null) {
+                    ranked = collectTopK(repo, engine, parallel, normalized, sortBy, k).iterator();
+                }
+                return ranked;
+            }
+        };
+    }
 
-            Set<DayOfWeek> secondLegValidDays = calculateValidDaysForNextLeg(
-                    firstLeg.getSchedule().getOperatingDays(),
-                    firstLeg.getDepartureStop().getScheduledStop(),
-                    firstLeg.getArrivalStop().getScheduledStop(),
-                    firstLeg.getArrivalStop().isNextDay());
-
-            SearchCriteria secondLegCriteria = SearchCriteria.builder()
-                    .departureCity(transferCity)
-                    .preferredTrain(criteria.getPreferredTrain())
-                    .travelDays(secondLegValidDays)
-                    .firstClassRate(criteria.getFirstClassRate())
-                    .secondClassRate(criteria.getSecondClassRate())
-                    .build();
-
-            List<Connection> secondLegs = connectionRepo.search(secondLegCriteria);
-
-            for (Connection secondLeg : secondLegs) {
-                if (!areConnectionDaysCompatible(firstLeg, secondLeg)) {
-                    continue;
+    private TopKCollector collectTopK(ConnectionRepository repo, SearchEngine engine, boolean parallel,
+            SearchCriteria criteria, SortOption sortBy, int k) {
+        TopKCollector top = new TopKCollector(sortBy, k);
+        for (Connection connection : repo.search(criteria)) {
+            top.offer(List.of(connection));
+        }
+
+        if (!top.isEmpty() || criteria.getDepartureCity() == null || criteria.getArrivalCity() == null
+                || (criteria.getMaxTransfers() != null && criteria.getMaxTransfers() < 1)) {
+            return top;
+        }
+
+        if (engine.getEngine() != null) {
+            for (Trip trip : engine.getEngine().findJourneys(repo, criteria)) {
+                if (criteria.isWithinBudget(trip)) {
+                    top.offer(trip.getConnections());
                 }
+            }
+            return top;
+        }
 
-                String secondArrivalCity = secondLeg.getArrivalStop().getCity().getName();
+        List<Connection> firstLegs = findFirstLegs(repo, criteria);
+        LegMemo legs = new LegMemo(repo, criteria);
+        if (parallel) {
+            List<TopKCollector> partials = firstLegs.parallelStream()
+                    .map(firstLeg -> {
+                        TopKCollector partial = new TopKCollector(sortBy, k);
+                        expandFirstLeg(criteria, firstLeg, new FareBudget(criteria, partial), legs,
+                                SearchDeadline.NONE, partial::offer);
+                        return partial;
+                    })
+                    .collect(Collectors.toList());
+            partials.forEach(top::addAll);
+        } else {
+            FareBudget budget = new FareBudget(criteria, top);
+            for (Connection firstLeg : firstLegs) {
+                expandFirstLeg(criteria, firstLeg, budget, legs, SearchDeadline.NONE, top::offer);
+            }
+        }
+        return top;
+    }
 
-                if (secondArrivalCity.equals(criteria.getArrivalCity())) {
-                    if (criteria.getLatestArrival() != null && secondLeg.getArrivalStop().getScheduledStop()
-                            .compareTo(criteria.getLatestArrival()) > 0) {
-                        continue;
+    /**
+     * Answers many searches at once, returning each query's result (as
+     * {@link #searchWithCache} would) in the order the queries were given.
+     * Queries found in the search cache are answered from it. The others that
+     * need the transfer search are grouped by departure city, earliest departure,
+     * travel days and leg filters. Each group looks up its first legs once and
+     * walks every first leg's second legs once for all of its destinations; the
+     * later legs are shared through one memo per set of leg filters. Direct
+     * connections are still looked up per query, from the city indexes.
+     * <p>
+     * Each group has its own {@code timeBudget} (null for none); once it has
+     * elapsed, the group's queries return the trips found so far, flagged as
+     * partial. Dominated trips are pruned when enabled, and complete results are
+     * cached. Prints the throughput in queries per second.
+     */
+    public List<SearchResult> searchBatch(Collection<SearchCriteria> queries, Duration timeBudget) {
+        ConnectionRepository repo = pinnedRepo();
+        SearchEngine engine = searchEngine;
+        boolean prune = pruneDominated;
+        long version = repo.getVersion();
+
+        long start = System.nanoTime();
+        List<SearchCriteria> normalized = queries.stream().map(SearchCriteria::normalized).toList();
+        List<SearchResult> results = new ArrayList<>(Collections.nCopies(normalized.size(), null));
+        boolean[] cached = new boolean[normalized.size()];
+
+        Map<List<Object>, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < normalized.size(); i++) {
+            SearchCriteria query = normalized.get(i);
+            List<Trip> hit = searchCache.get(List.of(engine, query), version);
+            if (hit != null) {
+                results.set(i, new SearchResult(hit, false));
+                cached[i] = true;
+                continue;
+            }
+
+            List<Trip> direct = repo.search(query).stream()
+                    .map(conn -> new Trip(List.of(conn)))
+                    .collect(Collectors.toList());
+
+            if (!direct.isEmpty() || query.getDepartureCity() == null || query.getArrivalCity() == null
+                    || (query.getMaxTransfers() != null && query.getMaxTransfers() < 1)) {
+                results.set(i, sortedResult(pruneIfEnabled(direct, prune), false));
+            } else if (engine.getEngine() != null) {
+                List<Trip> trips = new ArrayList<>();
+                for (Trip trip : engine.getEngine().findJourneys(repo, query)) {
+                    if (query.isWithinBudget(trip)) {
+                        trips.add(trip);
                     }
-                    trips.add(new Trip(List.of(firstLeg, secondLeg)));
-                    continue;
                 }
+                results.set(i, sortedResult(pruneIfEnabled(trips, prune), false));
+            } else {
+                List<Object> key = Arrays.asList(query.getDepartureCity(), query.getEarliestDeparture(),
+                        query.getTravelDays(), query.getPreferredTrain(), query.getFirstClassRate(),
+                        query.getSecondClassRate());
+                groups.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        Map<List<Object>, LegMemo> memos = new HashMap<>();
+        for (List<Integer> group : groups.values()) {
+            SearchDeadline deadline = SearchDeadline.after(timeBudget);
+            SearchCriteria first = normalized.get(group.get(0));
+            LegMemo legs = memos.computeIfAbsent(LegMemo.keyOf(first), k -> new LegMemo(repo, first));
+
+            List<List<Trip>> found = new ArrayList<>();
+            List<LegQuery> legQueries = new ArrayList<>();
+            for (int index : group) {
+                List<Trip> trips = new ArrayList<>();
+                found.add(trips);
+                SearchCriteria query = normalized.get(index);
+                legQueries.add(new LegQuery(query, new FareBudget(query, null),
+                        legList -> trips.add(new Trip(legList))));
+            }
+
+            for (Connection firstLeg : findFirstLegs(repo, first)) {
+                if (deadline.isExpired()) {
+                    break;
+                }
+                expandFirstLeg(legQueries, firstLeg, legs, deadline);
+            }
+
+            for (int q = 0; q < group.size(); q++) {
+                results.set(group.get(q), sortedResult(pruneIfEnabled(found.get(q), prune), deadline.wasReached()));
+            }
+        }
+
+        for (int i = 0; i < normalized.size(); i++) {
+            if (!cached[i] && !results.get(i).isPartial()) {
+                searchCache.put(List.of(engine, normalized.get(i)), version, results.get(i).getTrips());
+            }
+        }
 
-                Set<DayOfWeek> thirdLegValidDays = calculateValidDaysForNextLeg(
-                        secondLeg.getSchedule().getOperatingDays(),
-                        secondLeg.getDepartureStop().getScheduledStop(),
-                        secondLeg.getArrivalStop().getScheduledStop(),
-                        secondLeg.getArrivalStop().isNextDay());
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        info("[INFO] Batch search answered %d queries in %d ms (%.1f queries/s).%n",
+                normalized.size(), elapsedNanos / 1_000_000, normalized.size() * 1e9 / elapsedNanos);
+        return results;
+    }
+
+    private SearchResult sortedResult(List<Trip> trips, boolean partial) {
+        sortTrips(trips, SortOption.DURATION);
+        return new SearchResult(trips, partial);
+    }
+
+    /**
+     * Earliest arrival at every city reachable from the criteria's departure city
+     * when leaving on {@code day} at or after its earliest departure, arriving by
+     * {@code arriveBy} that day (or within a week if null). Answered with a single
+     * connection scan instead of one search per destination.
+     */
+    public List<ReachableCity> findReachableCities(SearchCriteria criteria, DayOfWeek day, LocalTime arriveBy) {
+        ConnectionRepository repo = pinnedRepo();
+        return new ConnectionScanEngine().reachableCities(repo, criteria.normalized(), day, arriveBy);
+    }
+
+    /**
+     * Best duration and cheapest second class fare between every pair of cities
+     * in the timetable, with the origins computed in parallel.
+     */
+    public TravelMatrix computeTravelMatrix() {
+        ConnectionRepository repo = pinnedRepo();
+        long start = System.nanoTime();
+        TravelMatrix matrix = TravelMatrix.compute(repo);
+        info("[INFO] Travel matrix for %d cities computed in %d ms.%n",
+                matrix.getCities().size(), (System.nanoTime() - start) / 1_000_000);
+        return matrix;
+    }
+
+    private void info(String format, Object... args) {
+        if (verbose) {
+            System.out.printf(format, args);
+        }
+    }
 
-                SearchCriteria thirdLegCriteria = SearchCriteria.builder()
-                        .departureCity(secondArrivalCity)
-                        .arrivalCity(criteria.getArrivalCity())
+    private ConnectionRepository pinnedRepo() {
+        ConnectionRepository repo = connectionRepo;
+        if (repo == null) {
+            throw new IllegalStateException("Connection repository is not set.");
+        }
+        return repo.pin();
+    }
+
+    private List<Connection> findFirstLegs(ConnectionRepository repo, SearchCriteria criteria) {
+        return repo.search(
+                SearchCriteria.builder()
+                        .departureCity(criteria.getDepartureCity())
+                        .earliestDeparture(criteria.getEarliestDeparture())
                         .preferredTrain(criteria.getPreferredTrain())
-                        .travelDays(thirdLegValidDays)
+                        .travelDays(criteria.getTravelDays())
                         .firstClassRate(criteria.getFirstClassRate())
                         .secondClassRate(criteria.getSecondClassRate())
-                        .build();
+                        .build());
+    }
 
-                List<Connection> thirdLegs = connectionRepo.search(thirdLegCriteria);
+    /**
+     * One query's part of a first-leg expansion: the checks that depend on the
+     * query, and where its itineraries go.
+     */
+    private record LegQuery(SearchCriteria criteria, FareBudget budget, Consumer<List<Connection>> sink,
+            Predicate<Connection> atDestination, Predicate<Connection> arrivesInTime) {
+
+        private LegQuery(SearchCriteria criteria, FareBudget budget, Consumer<List<Connection>> sink) {
+            this(criteria, budget, sink,
+                    SearchCriteria.builder().arrivalCity(criteria.getArrivalCity()).build().compile(),
+                    SearchCriteria.builder().latestArrival(criteria.getLatestArrival()).build().compile());
+        }
+    }
 
-                for (Connection thirdLeg : thirdLegs) {
-                    if (!areConnectionDaysCompatible(secondLeg, thirdLeg)) {
-                        continue;
-                    }
+    /**
+     * Passes the legs of every two- and three-leg itinerary that starts with
+     * {@code firstLeg} to {@code sink}. Each first leg is expanded independently,
+     * which is what the parallel mode relies on. Branches are cut as soon as
+     * their accumulated fares exceed {@code budget}. Later legs are looked up
+     * through {@code legs}, which must use the same leg filters as the criteria.
+     * Returns early once {@code deadline} has expired.
+     */
+    private void expandFirstLeg(SearchCriteria criteria, Connection firstLeg, FareBudget budget, LegMemo legs,
+            SearchDeadline deadline, Consumer<List<Connection>> sink) {
+        expandFirstLeg(List.of(new LegQuery(criteria, budget, sink)), firstLeg, legs, deadline);
+    }
 
-                    if (thirdLeg.getArrivalStop().getCity().getName().equals(criteria.getArrivalCity())) {
-                        if (criteria.getLatestArrival() != null && thirdLeg.getArrivalStop()
-                                .getScheduledStop().compareTo(criteria.getLatestArrival()) > 0) {
-                            continue;
-                        }
-                        trips.add(new Trip(List.of(firstLeg, secondLeg, thirdLeg)));
-                    }
-                }
+    /**
+     * Expands {@code firstLeg} for several queries that share its departure
+     * city and leg filters. The second legs and their day and transfer checks
+     * are walked once for all of them; only the budget, destination, arrival
+     * time and third legs are checked per query. Each query receives the same
+     * itineraries, in the same order, as if it were expanded on its own.
+     */
+    private void expandFirstLeg(List<LegQuery> queries, Connection firstLeg, LegMemo legs,
+            SearchDeadline deadline) {
+        String transferCity = firstLeg.getArrivalStop().getCity().getName();
+
+        if (transferCity.equals(firstLeg.getDepartureStop().getCity().getName())) // Prevent loops
+            return;
+
+        List<LegQuery> active = new ArrayList<>(queries.size());
+        for (LegQuery query : queries) {
+            if (!query.budget().exceeds(firstLeg)) {
+                active.add(query);
             }
         }
+        if (active.isEmpty()) {
+            return;
+        }
 
-        sortTrips(trips, SortOption.DURATION);
-        return trips;
-    }
+        int secondLegDayMask = nextLegDayMask(firstLeg);
 
-    private Set<DayOfWeek> calculateValidDaysForNextLeg(
-            Set<DayOfWeek> operationDays,
-            LocalTime departureTime,
-            LocalTime arrivalTime,
-            boolean arrivalIsNextDay) {
+        // Only departures within the transfer limits after arriving can be boarded
+        List<Connection> secondLegs = legs.connecting(firstLeg, null);
 
-        if (!arrivalIsNextDay) {
-            return operationDays;
-        } else {
-            return operationDays.stream()
-                    .map(day -> day.plus(1).compareTo(DayOfWeek.SUNDAY) > 0 ? DayOfWeek.MONDAY : day.plus(1))
-                    .collect(Collectors.toSet());
+        for (Connection secondLeg : secondLegs) {
+            if (deadline.isExpired()) {
+                return;
+            }
+            if (!secondLeg.getSchedule().operatesOnAll(secondLegDayMask)
+                    || !WeeklyTimetable.canTransfer(firstLeg, secondLeg)) {
+                continue;
+            }
+
+            for (LegQuery query : active) {
+                expandSecondLeg(query, firstLeg, secondLeg, legs);
+            }
         }
     }
 
-    private boolean areConnectionDaysCompatible(Connection previous, Connection next) {
-        Set<DayOfWeek> previousOperationDays = previous.getSchedule().getOperatingDays();
-        Set<DayOfWeek> nextOperationDays = next.getSchedule().getOperatingDays();
-
-        LocalTime previousArrival = previous.getArrivalStop().getScheduledStop();
-        LocalTime nextDeparture = next.getDepartureStop().getScheduledStop();
-        boolean previousArrivalNextDay = previous.getArrivalStop().isNextDay();
-        boolean nextDepartureNextDay = next.getDepartureStop().isNextDay();
+    private void expandSecondLeg(LegQuery query, Connection firstLeg, Connection secondLeg, LegMemo legs) {
+        SearchCriteria criteria = query.criteria();
+        FareBudget budget = query.budget();
+        if (budget.exceeds(firstLeg, secondLeg)) {
+            return;
+        }
 
-        for (DayOfWeek prevOpDay : previousOperationDays) {
-            DayOfWeek actualArrivalDay = prevOpDay;
-            if (previousArrivalNextDay) {
-                actualArrivalDay = prevOpDay.plus(1);
-                if (actualArrivalDay.compareTo(DayOfWeek.SUNDAY) > 0) {
-                    actualArrivalDay = DayOfWeek.MONDAY;
-                }
+        if (query.atDestination().test(secondLeg)) {
+            if (query.arrivesInTime().test(secondLeg)) {
+                query.sink().accept(List.of(firstLeg, secondLeg));
             }
+            return;
+        }
 
-            for (DayOfWeek nextOpDay : nextOperationDays) {
-                DayOfWeek actualDepartureDay = nextOpDay;
-                if (nextDepartureNextDay) {
-                    actualDepartureDay = nextOpDay.plus(1);
-                    if (actualDepartureDay.compareTo(DayOfWeek.SUNDAY) > 0) {
-                        actualDepartureDay = DayOfWeek.MONDAY;
-                    }
-                }
+        if (criteria.getMaxTransfers() != null && criteria.getMaxTransfers() < 2) {
+            return;
+        }
 
-                if (actualDepartureDay.equals(actualArrivalDay)) {
-                    if (nextDeparture.isAfter(previousArrival.plusMinutes(19))) {
-                        long minutesDiff = java.time.Duration.between(previousArrival, nextDeparture).toMinutes();
-                        if (minutesDiff >= 20 && minutesDiff <= 1440) {
-                            return true;
-                        }
-                    }
-                } else {
-                    DayOfWeek nextDayAfterArrival = actualArrivalDay.plus(1);
-                    if (nextDayAfterArrival.compareTo(DayOfWeek.SUNDAY) > 0) {
-                        nextDayAfterArrival = DayOfWeek.MONDAY;
-                    }
+        int thirdLegDayMask = nextLegDayMask(secondLeg);
 
-                    if (actualDepartureDay.equals(nextDayAfterArrival)) {
-                        long minutesUntilMidnight = java.time.Duration.between(previousArrival, LocalTime.MAX)
-                                .toMinutes() + 1;
-                        long minutesAfterMidnight = java.time.Duration.between(LocalTime.MIN, nextDeparture)
-                                .toMinutes();
-                        long totalMinutes = minutesUntilMidnight + minutesAfterMidnight;
+        List<Connection> thirdLegs = legs.connecting(secondLeg, criteria.getArrivalCity());
 
-                        if (totalMinutes >= 20 && totalMinutes <= 1440) {
-                            return true;
-                        }
-                    }
-                }
+        for (Connection thirdLeg : thirdLegs) {
+            if (!thirdLeg.getSchedule().operatesOnAll(thirdLegDayMask)
+                    || !WeeklyTimetable.canTransfer(secondLeg, thirdLeg)
+                    || budget.exceeds(firstLeg, secondLeg, thirdLeg)) {
+                continue;
+            }
+
+            if (query.atDestination().test(thirdLeg) && query.arrivesInTime().test(thirdLeg)) {
+                query.sink().accept(List.of(firstLeg, secondLeg, thirdLeg));
             }
         }
+    }
 
-        return false;
+    /**
+     * Days on which a leg arrives, which the following leg must all run on.
+     */
+    private int nextLegDayMask(Connection leg) {
+        int mask = leg.getSchedule().getDayMask();
+        return leg.getArrivalStop().isNextDay() ? TrainSchedule.rotate(mask, 1) : mask;
     }
 
     private String formatDuration(Duration duration) {
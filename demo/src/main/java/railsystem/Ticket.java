@@ -1,11 +1,12 @@
 package railsystem;
 
-import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import lombok.Data;
 
 @Data
 public class Ticket {
-    private static int idCount = 0;
+    private static final AtomicInteger idCount = new AtomicInteger();
 
     private Trip trip;
     private Traveller traveller;
@@ -20,21 +21,17 @@ public class Ticket {
     }
 
     private int getNextId() {
-        idCount += 1;
-        return idCount;
+        return idCount.incrementAndGet();
     }
 
-    public BigDecimal getTotalCost() {
-        BigDecimal cost;
+    // The trip already holds its fare totals, so this does not walk the connections
+    public Money getTotalCost() {
+        Money cost;
 
         if (classRate.equals("First Class")) {
-            cost = trip.getConnections().stream()
-                    .map(c -> c.getTicketRates().getFirstClass())
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            cost = trip.getTotalFirstClassRate();
         } else if (classRate.equals("Second Class")) {
-            cost = trip.getConnections().stream()
-                    .map(c -> c.getTicketRates().getSecondClass())
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            cost = trip.getTotalSecondClassRate();
         } else {
             throw new IllegalArgumentException("Invalid class rate: " + classRate);
         }
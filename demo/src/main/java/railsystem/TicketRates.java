@@ -1,7 +1,5 @@
 package railsystem;
 
-import java.math.BigDecimal;
-
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,6 +10,6 @@ import lombok.Builder;
 @AllArgsConstructor
 @Builder
 public class TicketRates {
-    private BigDecimal firstClass;
-    private BigDecimal secondClass;
+    private Money firstClass;
+    private Money secondClass;
 }
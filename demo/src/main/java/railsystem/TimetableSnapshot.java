@@ -0,0 +1,54 @@
+package railsystem;
+
+import java.util.List;
+
+/**
+ * Immutable, versioned copy of the connection data with the indexes derived
+ * from it. {@link ConnectionRepository} publishes a new snapshot whenever the
+ * connections change, so a search that holds one sees consistent data for its
+ * whole run without taking any lock.
+ */
+final class TimetableSnapshot {
+    private final long version;
+    private final List<Connection> connections;
+    private final ConnectionTable table;
+    private volatile WeeklyTimetable weeklyTimetable;
+
+    TimetableSnapshot(long version, List<Connection> connections) {
+        this.version = version;
+        this.connections = connections == null ? null : List.copyOf(connections);
+        this.table = new ConnectionTable(this.connections == null ? List.of() : this.connections);
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * The connections, or null if none were ever set.
+     */
+    List<Connection> getConnections() {
+        return connections;
+    }
+
+    ConnectionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Built on first use; later calls return the same instance.
+     */
+    WeeklyTimetable getWeeklyTimetable() {
+        WeeklyTimetable timetable = weeklyTimetable;
+        if (timetable == null) {
+            synchronized (this) {
+                timetable = weeklyTimetable;
+                if (timetable == null) {
+                    timetable = new WeeklyTimetable(connections == null ? List.of() : connections);
+                    weeklyTimetable = timetable;
+                }
+            }
+        }
+        return timetable;
+    }
+}
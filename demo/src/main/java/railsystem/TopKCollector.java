@@ -0,0 +1,139 @@
+package railsystem;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the best {@code k} itineraries for a {@link Terminal.SortOption} in a
+ * bounded heap. Only the legs and their sort keys are held; Trip objects are
+ * built lazily while iterating, best first.
+ */
+final class TopKCollector implements Iterable<Trip> {
+    // Same order as Terminal.sortTrips applied to a list already sorted by
+    // duration: the option's key, then duration, then discovery order
+    private static final Comparator<Candidate> ORDER = Comparator
+            .comparingLong(Candidate::primaryKey)
+            .thenComparingLong(Candidate::durationMinutes)
+            .thenComparingLong(Candidate::sequence);
+
+    private final Terminal.SortOption sortBy;
+    private final int k;
+    private final PriorityQueue<Candidate> worstFirst;
+    private long sequence;
+
+    TopKCollector(Terminal.SortOption sortBy, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative");
+        }
+        this.sortBy = sortBy;
+        this.k = k;
+        this.worstFirst = new PriorityQueue<>(Math.max(1, k), ORDER.reversed());
+    }
+
+    void offer(List<Connection> legs) {
+        int[] schedule = Trip.scheduleOf(legs);
+        offer(new Candidate(legs, primaryKey(legs, schedule), Trip.durationMinutes(schedule), sequence++));
+    }
+
+    /**
+     * Offers every candidate of {@code other}, in the order it discovered them.
+     */
+    void addAll(TopKCollector other) {
+        Candidate[] candidates = other.worstFirst.toArray(new Candidate[0]);
+        Arrays.sort(candidates, Comparator.comparingLong(Candidate::sequence));
+        for (Candidate candidate : candidates) {
+            offer(new Candidate(candidate.legs(), candidate.primaryKey(), candidate.durationMinutes(),
+                    sequence++));
+        }
+    }
+
+    /**
+     * Highest first class fare, in cents, that could still enter the collector:
+     * the fare of the worst kept itinerary once full when ranking by first class
+     * price, otherwise unbounded. A candidate with an equal fare may still win on
+     * duration, so only a higher fare can be pruned.
+     */
+    long firstClassBound() {
+        return sortBy == Terminal.SortOption.PRICE_FIRST_CLASS ? priceBound() : Long.MAX_VALUE;
+    }
+
+    /**
+     * Same as {@link #firstClassBound()} for second class.
+     */
+    long secondClassBound() {
+        return sortBy == Terminal.SortOption.PRICE_SECOND_CLASS ? priceBound() : Long.MAX_VALUE;
+    }
+
+    boolean isEmpty() {
+        return worstFirst.isEmpty();
+    }
+
+    int size() {
+        return worstFirst.size();
+    }
+
+    @Override
+    public Iterator<Trip> iterator() {
+        Candidate[] ranked = worstFirst.toArray(new Candidate[0]);
+        Arrays.sort(ranked, ORDER);
+
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < ranked.length;
+            }
+
+            @Override
+            public Trip next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return new Trip(ranked[next++].legs());
+            }
+        };
+    }
+
+    private void offer(Candidate candidate) {
+        if (worstFirst.size() < k) {
+            worstFirst.add(candidate);
+        } else if (k > 0 && ORDER.compare(candidate, worstFirst.peek()) < 0) {
+            worstFirst.poll();
+            worstFirst.add(candidate);
+        }
+    }
+
+    private long priceBound() {
+        if (k == 0) {
+            return -1;
+        }
+        return worstFirst.size() < k ? Long.MAX_VALUE : worstFirst.peek().primaryKey();
+    }
+
+    // The same keys as Trip's getters, computed before the Trip exists
+    private long primaryKey(List<Connection> legs, int[] schedule) {
+        switch (sortBy) {
+            case PRICE_FIRST_CLASS:
+                return Trip.firstClassCents(legs);
+            case PRICE_SECOND_CLASS:
+                return Trip.secondClassCents(legs);
+            case DEPARTURE_TIME:
+                return Trip.departureMinute(schedule);
+            case ARRIVAL_TIME:
+                return Trip.arrivalMinute(schedule);
+            case TRANSFERS:
+                return legs.size() - 1;
+            case DURATION:
+            default:
+                return Trip.durationMinutes(schedule);
+        }
+    }
+
+    private record Candidate(List<Connection> legs, long primaryKey, long durationMinutes, long sequence) {
+    }
+}
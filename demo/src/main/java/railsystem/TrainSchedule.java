@@ -13,8 +13,15 @@ import lombok.ToString;
 @EqualsAndHashCode
 public final class TrainSchedule {
 
+    public static final int ALL_DAYS = 0x7F;
+
+    private static final DayOfWeek[] DAYS = DayOfWeek.values();
+
     private final Set<DayOfWeek> operatingDays;
 
+    // Bit (day.getValue() - 1) is set for every operating day, Monday being bit 0
+    private final int dayMask;
+
     public TrainSchedule(Set<DayOfWeek> operatingDays) {
         if (operatingDays == null || operatingDays.isEmpty()) {
             throw new IllegalArgumentException("Operating days cannot be null or empty");
@@ -22,9 +29,40 @@ public final class TrainSchedule {
 
         // Defensive copy to prevent external modification
         this.operatingDays = Collections.unmodifiableSet(EnumSet.copyOf(operatingDays));
+        this.dayMask = maskOf(operatingDays);
     }
 
     public boolean operatesOn(DayOfWeek day) {
-        return operatingDays.contains(day);
+        return (dayMask & bit(day)) != 0;
+    }
+
+    /**
+     * True if the train runs on every day set in {@code mask}.
+     */
+    public boolean operatesOnAll(int mask) {
+        return (dayMask & mask) == mask;
+    }
+
+    public static int bit(DayOfWeek day) {
+        return 1 << (day.getValue() - 1);
+    }
+
+    public static int maskOf(Set<DayOfWeek> days) {
+        int mask = 0;
+        for (DayOfWeek day : DAYS) {
+            if (days.contains(day)) {
+                mask |= bit(day);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Moves every day in the mask {@code days} days forward, wrapping Sunday
+     * around to Monday.
+     */
+    public static int rotate(int mask, int days) {
+        int shift = Math.floorMod(days, 7);
+        return ((mask << shift) | (mask >>> (7 - shift))) & ALL_DAYS;
     }
 }
@@ -0,0 +1,459 @@
+package railsystem;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Origin x destination matrix of the shortest travel time and the cheapest
+ * second class fare between every pair of cities, over journeys with any
+ * number of transfers on any day of the week. The two values are optimised
+ * independently, so they may come from different itineraries.
+ */
+public final class TravelMatrix {
+    private static final int MAGIC = 0x54524d58; // "TRMX"
+    private static final int FORMAT_VERSION = 1;
+    private static final int UNREACHABLE = -1;
+    private static final String CSV_HEADER =
+            "Origin,Destination,Best duration (minutes),Cheapest second class fare (in euro)";
+
+    private final List<City> cities;
+    private final Map<City, Integer> index = new HashMap<>();
+    private final int[][] minutes;
+    private final int[][] secondClassCents;
+
+    private TravelMatrix(List<City> cities, int[][] minutes, int[][] secondClassCents) {
+        this.cities = Collections.unmodifiableList(new ArrayList<>(cities));
+        this.minutes = minutes;
+        this.secondClassCents = secondClassCents;
+        for (int i = 0; i < cities.size(); i++) {
+            index.put(cities.get(i), i);
+        }
+    }
+
+    /**
+     * Computes the matrix for every city served by the repository, with one
+     * sweep over the weekly timetable per origin and the origins spread over the
+     * common ForkJoinPool.
+     */
+    public static TravelMatrix compute(ConnectionRepository repository) {
+        WeeklyTimetable timetable = repository.getWeeklyTimetable();
+        int cityCount = timetable.cityCount();
+        int[][] minutes = new int[cityCount][];
+        int[][] secondClassCents = new int[cityCount][];
+
+        IntStream.range(0, cityCount).parallel().forEach(origin -> {
+            OriginSweep sweep = new OriginSweep(timetable, origin);
+            sweep.run();
+            minutes[origin] = sweep.bestMinutes;
+            secondClassCents[origin] = sweep.cheapestCents;
+        });
+        return new TravelMatrix(timetable.getCities(), minutes, secondClassCents);
+    }
+
+    public List<City> getCities() {
+        return cities;
+    }
+
+    /**
+     * Shortest travel time from the first departure to the last arrival, or null
+     * if the destination cannot be reached.
+     */
+    public Duration getBestDuration(City origin, City destination) {
+        int value = valueAt(minutes, origin, destination);
+        return value == UNREACHABLE ? null : Duration.ofMinutes(value);
+    }
+
+    /**
+     * Cheapest total second class fare, or null if the destination cannot be
+     * reached.
+     */
+    public Money getCheapestSecondClassFare(City origin, City destination) {
+        int value = valueAt(secondClassCents, origin, destination);
+        return value == UNREACHABLE ? null : Money.ofCents(value);
+    }
+
+    /**
+     * Writes one row per reachable pair.
+     */
+    public void writeCsv(Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            writer.write(CSV_HEADER);
+            writer.newLine();
+            for (int from = 0; from < cities.size(); from++) {
+                for (int to = 0; to < cities.size(); to++) {
+                    if (minutes[from][to] == UNREACHABLE) {
+                        continue;
+                    }
+                    writer.write(csvField(cities.get(from).getName()) + "," + csvField(cities.get(to).getName()) + ","
+                            + minutes[from][to] + "," + Money.ofCents(secondClassCents[from][to]));
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    public static TravelMatrix readCsv(Path path) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        Map<String, Integer> ids = new HashMap<>();
+        List<City> cities = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String line = reader.readLine();
+            if (!CSV_HEADER.equals(line)) {
+                throw new IOException("Not a travel matrix CSV file: " + path);
+            }
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] fields = splitCsv(line);
+                if (fields.length != 4) {
+                    throw new IOException("Malformed travel matrix row: " + line);
+                }
+                for (int i = 0; i < 2; i++) {
+                    ids.computeIfAbsent(fields[i], name -> {
+                        cities.add(City.getInstance(name));
+                        return cities.size() - 1;
+                    });
+                }
+                rows.add(fields);
+            }
+        }
+
+        int[][] minutes = unreachableMatrix(cities.size());
+        int[][] secondClassCents = unreachableMatrix(cities.size());
+        for (String[] fields : rows) {
+            int from = ids.get(fields[0]);
+            int to = ids.get(fields[1]);
+            minutes[from][to] = Integer.parseInt(fields[2]);
+            secondClassCents[from][to] = Math.toIntExact(Money.of(new BigDecimal(fields[3])).getCents());
+        }
+        return new TravelMatrix(cities, minutes, secondClassCents);
+    }
+
+    /**
+     * Writes the whole matrix as a compact binary file: a header, the city
+     * names, then the minutes and the fares in cents as row-major ints (-1 for
+     * unreachable).
+     */
+    public void writeBinary(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(cities.size());
+            for (City city : cities) {
+                out.writeUTF(city.getName());
+            }
+            for (int[] row : minutes) {
+                for (int value : row) {
+                    out.writeInt(value);
+                }
+            }
+            for (int[] row : secondClassCents) {
+                for (int value : row) {
+                    out.writeInt(value);
+                }
+            }
+        }
+    }
+
+    public static TravelMatrix readBinary(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a travel matrix file: " + path);
+            }
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported travel matrix format version: " + version);
+            }
+
+            int cityCount = in.readInt();
+            List<City> cities = new ArrayList<>(cityCount);
+            for (int i = 0; i < cityCount; i++) {
+                cities.add(City.getInstance(in.readUTF()));
+            }
+            int[][] minutes = new int[cityCount][cityCount];
+            int[][] secondClassCents = new int[cityCount][cityCount];
+            for (int[] row : minutes) {
+                for (int i = 0; i < cityCount; i++) {
+                    row[i] = in.readInt();
+                }
+            }
+            for (int[] row : secondClassCents) {
+                for (int i = 0; i < cityCount; i++) {
+                    row[i] = in.readInt();
+                }
+            }
+            return new TravelMatrix(cities, minutes, secondClassCents);
+        }
+    }
+
+    private int valueAt(int[][] matrix, City origin, City destination) {
+        Integer from = index.get(origin);
+        Integer to = index.get(destination);
+        return from == null || to == null ? UNREACHABLE : matrix[from][to];
+    }
+
+    private static int[][] unreachableMatrix(int size) {
+        int[][] matrix = new int[size][size];
+        for (int[] row : matrix) {
+            Arrays.fill(row, UNREACHABLE);
+        }
+        return matrix;
+    }
+
+    private static String csvField(String value) {
+        if (value.contains(",") || value.contains("\"")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    private static String[] splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    /**
+     * Single sweep from one origin over the departure-ordered weekly timetable.
+     * Every boarded event gets the latest possible start of a journey reaching
+     * it and the cheapest fare to it. Its arrival is held in a heap until the
+     * 20-minute transfer time has passed, then offered to the arrival city's
+     * sliding windows of the last 24 hours, which keep the latest start and the
+     * cheapest fare still available for a transfer.
+     */
+    private static final class OriginSweep {
+        private final WeeklyTimetable timetable;
+        private final int origin;
+        private final int[] latestStart;
+        private final long[] cheapestFare;
+        private final Window[] startWindows;
+        private final Window[] fareWindows;
+        private final int[] bestMinutes;
+        private final int[] cheapestCents;
+
+        private OriginSweep(WeeklyTimetable timetable, int origin) {
+            this.timetable = timetable;
+            this.origin = origin;
+            this.latestStart = new int[timetable.size()];
+            this.cheapestFare = new long[timetable.size()];
+            this.startWindows = new Window[timetable.cityCount()];
+            this.fareWindows = new Window[timetable.cityCount()];
+            this.bestMinutes = new int[timetable.cityCount()];
+            this.cheapestCents = new int[timetable.cityCount()];
+            Arrays.fill(bestMinutes, UNREACHABLE);
+            Arrays.fill(cheapestCents, UNREACHABLE);
+        }
+
+        private void run() {
+            EventHeap pending = new EventHeap(timetable);
+
+            for (int event = 0; event < timetable.size(); event++) {
+                int departure = timetable.departureTime(event);
+                while (!pending.isEmpty() && pending.peekReadyAt() <= departure) {
+                    release(pending.poll());
+                }
+
+                int from = timetable.departureCity(event);
+                int to = timetable.arrivalCity(event);
+                if (to == origin) {
+                    continue;
+                }
+
+                int start;
+                long fare;
+                if (from == origin) {
+                    // Only the first copy of the week starts journeys, so none is counted twice
+                    if (departure >= WeeklyTimetable.MINUTES_PER_WEEK) {
+                        continue;
+                    }
+                    start = departure;
+                    fare = 0;
+                } else {
+                    Window starts = startWindows[from];
+                    if (starts == null || !starts.expireBefore(departure - ConnectionScanEngine.MAX_TRANSFER_MINUTES)) {
+                        continue;
+                    }
+                    fareWindows[from].expireBefore(departure - ConnectionScanEngine.MAX_TRANSFER_MINUTES);
+                    start = (int) starts.best();
+                    fare = fareWindows[from].best();
+                }
+
+                latestStart[event] = start;
+                cheapestFare[event] = fare + timetable.secondClassFare(event);
+                pending.add(event);
+
+                int minutes = timetable.arrivalTime(event) - start;
+                if (bestMinutes[to] == UNREACHABLE || minutes < bestMinutes[to]) {
+                    bestMinutes[to] = minutes;
+                }
+                if (cheapestCents[to] == UNREACHABLE || cheapestFare[event] < cheapestCents[to]) {
+                    cheapestCents[to] = Math.toIntExact(cheapestFare[event]);
+                }
+            }
+        }
+
+        private void release(int event) {
+            int city = timetable.arrivalCity(event);
+            if (startWindows[city] == null) {
+                startWindows[city] = new Window(true);
+                fareWindows[city] = new Window(false);
+            }
+            startWindows[city].add(timetable.arrivalTime(event), latestStart[event]);
+            fareWindows[city].add(timetable.arrivalTime(event), cheapestFare[event]);
+        }
+    }
+
+    /**
+     * Values added in arrival order, of which only the best one that arrived at
+     * or after a moving cut-off is needed. A monotonic deque keeps just the
+     * entries that can still become the best.
+     */
+    private static final class Window {
+        private final boolean keepMaximum;
+        private int[] arrivals = new int[8];
+        private long[] values = new long[8];
+        private int head;
+        private int tail;
+
+        private Window(boolean keepMaximum) {
+            this.keepMaximum = keepMaximum;
+        }
+
+        private void add(int arrival, long value) {
+            // A later arrival that is at least as good makes older entries useless
+            while (tail > head && (keepMaximum ? values[tail - 1] <= value : values[tail - 1] >= value)) {
+                tail--;
+            }
+            if (tail == arrivals.length) {
+                compact();
+            }
+            arrivals[tail] = arrival;
+            values[tail] = value;
+            tail++;
+        }
+
+        /**
+         * Drops entries that arrived before {@code cutoff}; returns true if any
+         * entry is left.
+         */
+        private boolean expireBefore(int cutoff) {
+            while (head < tail && arrivals[head] < cutoff) {
+                head++;
+            }
+            return head < tail;
+        }
+
+        private long best() {
+            return values[head];
+        }
+
+        private void compact() {
+            int size = tail - head;
+            int capacity = size * 2 > arrivals.length ? arrivals.length * 2 : arrivals.length;
+            int[] newArrivals = new int[capacity];
+            long[] newValues = new long[capacity];
+            System.arraycopy(arrivals, head, newArrivals, 0, size);
+            System.arraycopy(values, head, newValues, 0, size);
+            arrivals = newArrivals;
+            values = newValues;
+            head = 0;
+            tail = size;
+        }
+    }
+
+    /**
+     * Binary min-heap of events keyed by the time their arrival can be used for
+     * a transfer.
+     */
+    private static final class EventHeap {
+        private final WeeklyTimetable timetable;
+        private int[] events = new int[64];
+        private int size;
+
+        private EventHeap(WeeklyTimetable timetable) {
+            this.timetable = timetable;
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private int readyAt(int event) {
+            return timetable.arrivalTime(event) + ConnectionScanEngine.MIN_TRANSFER_MINUTES;
+        }
+
+        private int peekReadyAt() {
+            return readyAt(events[0]);
+        }
+
+        private void add(int event) {
+            if (size == events.length) {
+                events = Arrays.copyOf(events, size * 2);
+            }
+            int i = size++;
+            while (i > 0 && readyAt(events[(i - 1) / 2]) > readyAt(event)) {
+                events[i] = events[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            events[i] = event;
+        }
+
+        private int poll() {
+            int top = events[0];
+            int last = events[--size];
+            int i = 0;
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && readyAt(events[child + 1]) < readyAt(events[child])) {
+                    child++;
+                }
+                if (readyAt(events[child]) >= readyAt(last)) {
+                    break;
+                }
+                events[i] = events[child];
+                i = child;
+            }
+            events[i] = last;
+            return top;
+        }
+    }
+}
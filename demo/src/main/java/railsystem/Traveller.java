@@ -4,6 +4,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -14,7 +15,7 @@ public class Traveller {
     private static final Map<String, Traveller> travellerRegistry = new ConcurrentHashMap<>();
 
     private String firstName, lastName, id;
-    private List<Ticket> tickets = new java.util.ArrayList<>();
+    private List<Ticket> tickets = new CopyOnWriteArrayList<>();
 
     private Traveller(String firstName, String lastName, String id) {
         this.firstName = firstName;
@@ -36,14 +37,8 @@ public class Traveller {
             throw new IllegalArgumentException("First name, last name, and/or id cannot be null or empty");
         }
 
-        Traveller existingTraveller = travellerRegistry.get(id);
-        if (existingTraveller != null) {
-            return existingTraveller;
-        }
-
-        Traveller newTraveller = new Traveller(firstName, lastName, id);
-        travellerRegistry.put(id, newTraveller);
-        return newTraveller;
+        // computeIfAbsent so two threads registering the same id get the same instance
+        return travellerRegistry.computeIfAbsent(id, key -> new Traveller(firstName, lastName, key));
     }
 
     public static boolean exists(String id) {
@@ -1,23 +1,25 @@
 package railsystem;
 
-import java.math.BigDecimal;
 import java.time.DayOfWeek;
 import java.time.Duration;
-import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 public final class Trip {
-    private static long idCount = 0;
+    private static final AtomicLong idCount = new AtomicLong();
 
     private final List<Connection> connections;
-    private final BigDecimal totalFirstClassRate;
-    private final BigDecimal totalSecondClassRate;
+    private final Money totalFirstClassRate;
+    private final Money totalSecondClassRate;
     private final Duration totalDuration;
     private final List<Duration> transferTimes;
+    private final int[] schedule;
+    private final int departureMinute;
+    private final int arrivalMinute;
     private final long id;
 
     public Trip(List<Connection> connections) {
@@ -25,20 +27,19 @@ public final class Trip {
             throw new IllegalArgumentException("Connections list cannot be null or empty");
         }
         this.connections = List.copyOf(connections); // Immutable copy
-        this.totalFirstClassRate = connections.stream()
-                .map(c -> c.getTicketRates().getFirstClass())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        this.totalSecondClassRate = connections.stream()
-                .map(c -> c.getTicketRates().getSecondClass())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        this.totalDuration = calculateTotalDuration();
+        this.totalFirstClassRate = Money.ofCents(firstClassCents(this.connections));
+        this.totalSecondClassRate = Money.ofCents(secondClassCents(this.connections));
+        this.schedule = scheduleOf(this.connections);
+        this.totalDuration = Duration.ofMinutes(durationMinutes(schedule));
         this.transferTimes = Collections.unmodifiableList(calculateTransferTimes());
-        this.id = ++idCount;
+        this.departureMinute = departureMinute(schedule);
+        this.arrivalMinute = arrivalMinute(schedule);
+        this.id = idCount.incrementAndGet();
     }
 
     // Constructor for restoring trips from database with a specific ID
-    public Trip(long id, List<Connection> connections, BigDecimal totalFirstClassRate,
-            BigDecimal totalSecondClassRate, Duration totalDuration) {
+    public Trip(long id, List<Connection> connections, Money totalFirstClassRate,
+            Money totalSecondClassRate, Duration totalDuration) {
         if (connections == null || connections.isEmpty()) {
             throw new IllegalArgumentException("Connections list cannot be null or empty");
         }
@@ -47,12 +48,13 @@ public final class Trip {
         this.totalFirstClassRate = totalFirstClassRate;
         this.totalSecondClassRate = totalSecondClassRate;
         this.totalDuration = totalDuration;
+        this.schedule = scheduleOf(this.connections);
         this.transferTimes = Collections.unmodifiableList(calculateTransferTimes());
+        this.departureMinute = departureMinute(schedule);
+        this.arrivalMinute = arrivalMinute(schedule);
 
         // Update idCount if necessary to avoid ID collisions
-        if (id > idCount) {
-            idCount = id;
-        }
+        idCount.accumulateAndGet(id, Math::max);
     }
 
     public List<Connection> getConnections() {
@@ -63,11 +65,11 @@ public final class Trip {
         return id;
     }
 
-    public BigDecimal getTotalFirstClassRate() {
+    public Money getTotalFirstClassRate() {
         return totalFirstClassRate;
     }
 
-    public BigDecimal getTotalSecondClassRate() {
+    public Money getTotalSecondClassRate() {
         return totalSecondClassRate;
     }
 
@@ -75,73 +77,95 @@ public final class Trip {
         return totalDuration;
     }
 
-    public List<Duration> getTransferTimes() {
-        return transferTimes;
+    // Primitive sort keys, so results can be ordered without comparing Duration, Money or LocalTime
+
+    public long getDurationMinutes() {
+        return totalDuration.toMinutes();
     }
 
-    private Duration calculateTotalDuration() {
-        if (connections.size() == 1) {
-            Connection c = connections.get(0);
-            Duration duration = Duration.between(
-                    c.getDepartureStop().getScheduledStop(),
-                    c.getArrivalStop().getScheduledStop());
+    public long getFirstClassCents() {
+        return totalFirstClassRate.getCents();
+    }
 
-            if (c.getArrivalStop().isNextDay() || duration.isNegative()) {
-                duration = duration.plusDays(1);
-            }
-            return duration;
-        }
+    public long getSecondClassCents() {
+        return totalSecondClassRate.getCents();
+    }
 
-        Connection first = connections.get(0);
-        Connection last = connections.get(connections.size() - 1);
+    /**
+     * Minute of the day the first leg departs.
+     */
+    public int getDepartureMinute() {
+        return departureMinute;
+    }
 
-        Duration totalDuration = Duration.between(
-                first.getDepartureStop().getScheduledStop(),
-                last.getArrivalStop().getScheduledStop());
+    /**
+     * Minute the last leg arrives, counted on the weekly time axis from midnight
+     * of the departure day, so a next-day arrival at 01:00 is 1500.
+     */
+    public int getArrivalMinute() {
+        return arrivalMinute;
+    }
 
-        int daysCrossed = 0;
+    public int getTransferCount() {
+        return connections.size() - 1;
+    }
 
-        for (Connection c : connections) {
-            if (c.getArrivalStop().isNextDay()) {
-                daysCrossed++;
-            }
-        }
+    public List<Duration> getTransferTimes() {
+        return transferTimes;
+    }
 
-        for (int i = 0; i < connections.size() - 1; i++) {
-            Connection current = connections.get(i);
-            Connection next = connections.get(i + 1);
+    /**
+     * Days between the departure day and the arrival day of the journey.
+     */
+    public int getArrivalDayOffset() {
+        return schedule[schedule.length - 1] / WeeklyTimetable.MINUTES_PER_DAY
+                - schedule[0] / WeeklyTimetable.MINUTES_PER_DAY;
+    }
 
-            LocalTime currentArrival = current.getArrivalStop().getScheduledStop();
-            LocalTime nextDeparture = next.getDepartureStop().getScheduledStop();
+    // The sort keys of a sequence of legs, static so candidates can be ranked before a Trip is built
 
-            if (nextDeparture.isBefore(currentArrival)) {
-                daysCrossed++;
-            }
-        }
+    /**
+     * Departure and arrival minute of every leg in turn on the
+     * {@link WeeklyTimetable} time axis, including transfers and day rollovers.
+     */
+    static int[] scheduleOf(List<Connection> connections) {
+        int[] times = WeeklyTimetable.schedule(connections);
+        return times != null ? times : WeeklyTimetable.clockSchedule(connections);
+    }
 
-        if (totalDuration.plusDays(daysCrossed).isNegative()) {
-            daysCrossed++;
-        }
+    static long durationMinutes(int[] schedule) {
+        return schedule[schedule.length - 1] - schedule[0];
+    }
 
-        return totalDuration.plusDays(daysCrossed);
+    static int departureMinute(int[] schedule) {
+        return schedule[0] % WeeklyTimetable.MINUTES_PER_DAY;
     }
 
-    private List<Duration> calculateTransferTimes() {
-        List<Duration> transfers = new ArrayList<>();
-        for (int i = 0; i < connections.size() - 1; i++) {
-            Connection current = connections.get(i);
-            Connection next = connections.get(i + 1);
+    static int arrivalMinute(int[] schedule) {
+        return schedule[schedule.length - 1] - schedule[0] / WeeklyTimetable.MINUTES_PER_DAY
+                * WeeklyTimetable.MINUTES_PER_DAY;
+    }
 
-            Duration transfer = Duration.between(
-                    current.getArrivalStop().getScheduledStop(),
-                    next.getDepartureStop().getScheduledStop());
+    static long firstClassCents(List<Connection> connections) {
+        long cents = 0;
+        for (Connection connection : connections) {
+            cents += connection.getTicketRates().getFirstClass().getCents();
+        }
+        return cents;
+    }
 
-            // Adjust for next-day departure
-            if (transfer.isNegative() || next.getDepartureStop().isNextDay()) {
-                transfer = transfer.plusDays(1);
-            }
+    static long secondClassCents(List<Connection> connections) {
+        long cents = 0;
+        for (Connection connection : connections) {
+            cents += connection.getTicketRates().getSecondClass().getCents();
+        }
+        return cents;
+    }
 
-            transfers.add(transfer);
+    private List<Duration> calculateTransferTimes() {
+        List<Duration> transfers = new ArrayList<>();
+        for (int i = 1; i < connections.size(); i++) {
+            transfers.add(Duration.ofMinutes(schedule[2 * i] - schedule[2 * i - 1]));
         }
         return transfers;
     }
@@ -229,9 +253,8 @@ public final class Trip {
                 .append(" → ").append(last.getArrivalStop().getCity().getName()).append("\n");
         sb.append("  Departure: ").append(first.getDepartureStop().getScheduledStop()).append("\n");
         sb.append("  Arrival: ").append(last.getArrivalStop().getScheduledStop());
-        if (last.getArrivalStop().isNextDay()) {
-            int totalDays = (int) connections.stream().filter(c -> c.getArrivalStop().isNextDay()).count();
-            sb.append(" (+").append(totalDays).append("d)");
+        if (getArrivalDayOffset() > 0) {
+            sb.append(" (+").append(getArrivalDayOffset()).append("d)");
         }
         sb.append("\n  Total Duration: ").append(formatDuration(totalDuration)).append("\n");
         sb.append("────────────────────────────────────────────────────────────────\n");
@@ -251,13 +274,7 @@ public final class Trip {
             if (c.getArrivalStop().isNextDay())
                 sb.append(" (+1d)");
 
-            Duration legDuration = Duration.between(
-                    c.getDepartureStop().getScheduledStop(),
-                    c.getArrivalStop().getScheduledStop());
-            if (c.getArrivalStop().isNextDay())
-                legDuration = legDuration.plusDays(1);
-            if (legDuration.isNegative())
-                legDuration = legDuration.plusDays(1);
+            Duration legDuration = Duration.ofMinutes(WeeklyTimetable.legMinutes(c));
 
             sb.append("\n    Duration: ").append(formatDuration(legDuration)).append("\n");
 
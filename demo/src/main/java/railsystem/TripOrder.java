@@ -0,0 +1,123 @@
+package railsystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Orderings of one list of search results. Each {@link Terminal.SortOption}
+ * ordering is computed from the trips' primitive sort keys the first time it is
+ * asked for and reused afterwards, so switching back and forth between options
+ * costs nothing. Every ordering is a stable sort of the original list.
+ */
+final class TripOrder {
+    /**
+     * Lists at least this long are sorted with {@link Arrays#parallelSort}.
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    private static final long MAX_PACKED_KEY = Integer.MAX_VALUE;
+
+    private final List<Trip> trips;
+    private final Map<Terminal.SortOption, List<Trip>> orderings = new EnumMap<>(Terminal.SortOption.class);
+
+    TripOrder(List<Trip> trips) {
+        this.trips = List.copyOf(trips);
+    }
+
+    /**
+     * The trips in {@code sortBy} order, as an unmodifiable list.
+     */
+    synchronized List<Trip> sortedBy(Terminal.SortOption sortBy) {
+        return orderings.computeIfAbsent(sortBy, option -> {
+            List<Trip> sorted = new ArrayList<>(trips.size());
+            for (int index : permutation(trips, option)) {
+                sorted.add(trips.get(index));
+            }
+            return Collections.unmodifiableList(sorted);
+        });
+    }
+
+    /**
+     * Indexes of {@code trips} in {@code sortBy} order; ties keep their order in
+     * the list.
+     */
+    static int[] permutation(List<Trip> trips, Terminal.SortOption sortBy) {
+        int[] order = new int[trips.size()];
+        Arrays.setAll(order, i -> i);
+        // Least significant key first: each pass is stable, so earlier passes break ties
+        List<ToLongFunction<Trip>> keys = sortKeys(sortBy);
+        for (int i = keys.size() - 1; i >= 0; i--) {
+            order = stableSort(trips, order, keys.get(i));
+        }
+        return order;
+    }
+
+    private static List<ToLongFunction<Trip>> sortKeys(Terminal.SortOption sortBy) {
+        switch (sortBy) {
+            case PRICE_FIRST_CLASS:
+                return List.of(Trip::getFirstClassCents);
+            case PRICE_SECOND_CLASS:
+                return List.of(Trip::getSecondClassCents);
+            case DEPARTURE_TIME:
+                return List.of(Trip::getDepartureMinute);
+            case ARRIVAL_TIME:
+                return List.of(Trip::getArrivalMinute);
+            case TRANSFERS:
+                return List.of(Trip::getTransferCount, Trip::getDurationMinutes);
+            case DURATION:
+            default:
+                return List.of(Trip::getDurationMinutes);
+        }
+    }
+
+    /**
+     * Stable sort of {@code order} by one key. Keys that fit an int are packed
+     * with their position into a long, so the sort runs on primitives only;
+     * others fall back to a comparator over boxed positions.
+     */
+    private static int[] stableSort(List<Trip> trips, int[] order, ToLongFunction<Trip> key) {
+        int size = order.length;
+        long[] keys = new long[size];
+        boolean packable = true;
+        for (int i = 0; i < size; i++) {
+            keys[i] = key.applyAsLong(trips.get(order[i]));
+            packable &= keys[i] >= 0 && keys[i] <= MAX_PACKED_KEY;
+        }
+
+        int[] sorted = new int[size];
+        if (packable) {
+            long[] packed = new long[size];
+            for (int i = 0; i < size; i++) {
+                packed[i] = keys[i] << 32 | i;
+            }
+            if (size >= PARALLEL_THRESHOLD) {
+                Arrays.parallelSort(packed);
+            } else {
+                Arrays.sort(packed);
+            }
+            for (int i = 0; i < size; i++) {
+                sorted[i] = order[(int) packed[i]];
+            }
+            return sorted;
+        }
+
+        Integer[] positions = new Integer[size];
+        Arrays.setAll(positions, i -> i);
+        Comparator<Integer> byKey = Comparator.comparingLong(i -> keys[i]);
+        if (size >= PARALLEL_THRESHOLD) {
+            Arrays.parallelSort(positions, byKey);
+        } else {
+            Arrays.sort(positions, byKey);
+        }
+        for (int i = 0; i < size; i++) {
+            sorted[i] = order[positions[i]];
+        }
+        return sorted;
+    }
+}
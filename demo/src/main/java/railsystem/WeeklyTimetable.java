@@ -0,0 +1,336 @@
+package railsystem;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Expands every connection into its concrete departures over a week and keeps
+ * them in one array ordered by departure time, expressed in minutes since
+ * Monday 00:00. The week is laid out twice so journeys can run past Sunday
+ * night without wrapping arithmetic.
+ */
+final class WeeklyTimetable {
+    static final int MINUTES_PER_DAY = 24 * 60;
+    static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+    private final Map<City, Integer> cityIds = new HashMap<>();
+    private final List<City> cities = new ArrayList<>();
+
+    private final int[] departureTimes;
+    private final int[] arrivalTimes;
+    private final int[] departureCities;
+    private final int[] arrivalCities;
+    private final long[] firstClassFares;
+    private final long[] secondClassFares;
+    private final Connection[] connections;
+    private final int[][] routesFrom;
+    private final int[][] routeEvents;
+
+    WeeklyTimetable(List<Connection> source) {
+        List<long[]> events = new ArrayList<>();
+        List<Connection> eventConnections = new ArrayList<>();
+
+        for (Connection connection : source) {
+            int departureCity = idOf(connection.getDepartureStop().getCity());
+            int arrivalCity = idOf(connection.getArrivalStop().getCity());
+            int departureMinute = minuteOfDay(connection.getDepartureStop());
+            int legMinutes = legMinutes(connection);
+
+            for (DayOfWeek day : connection.getSchedule().getOperatingDays()) {
+                for (int week = 0; week < 2; week++) {
+                    int departure = week * MINUTES_PER_WEEK + (day.getValue() - 1) * MINUTES_PER_DAY
+                            + departureMinute;
+                    events.add(new long[] { departure, departure + legMinutes, departureCity, arrivalCity,
+                            eventConnections.size() });
+                    eventConnections.add(connection);
+                }
+            }
+        }
+
+        // Stable on ties so equal departures keep source order
+        events.sort((a, b) -> Long.compare(a[0], b[0]));
+
+        int size = events.size();
+        this.departureTimes = new int[size];
+        this.arrivalTimes = new int[size];
+        this.departureCities = new int[size];
+        this.arrivalCities = new int[size];
+        this.firstClassFares = new long[size];
+        this.secondClassFares = new long[size];
+        this.connections = new Connection[size];
+
+        for (int i = 0; i < size; i++) {
+            long[] event = events.get(i);
+            departureTimes[i] = (int) event[0];
+            arrivalTimes[i] = (int) event[1];
+            departureCities[i] = (int) event[2];
+            arrivalCities[i] = (int) event[3];
+            connections[i] = eventConnections.get((int) event[4]);
+            firstClassFares[i] = connections[i].getTicketRates().getFirstClass().getCents();
+            secondClassFares[i] = connections[i].getTicketRates().getSecondClass().getCents();
+        }
+
+        this.routeEvents = groupRoutes();
+        this.routesFrom = new int[cities.size()][];
+        List<List<Integer>> byCity = new ArrayList<>();
+        for (int city = 0; city < cities.size(); city++) {
+            byCity.add(new ArrayList<>());
+        }
+        for (int route = 0; route < routeEvents.length; route++) {
+            byCity.get(departureCities[routeEvents[route][0]]).add(route);
+        }
+        for (int city = 0; city < cities.size(); city++) {
+            routesFrom[city] = byCity.get(city).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    static int minuteOfDay(TrainStop stop) {
+        return stop.getScheduledStop().getHour() * 60 + stop.getScheduledStop().getMinute();
+    }
+
+    /**
+     * Length of a single leg in minutes, rolling over midnight when the arrival
+     * is marked as next day or falls before the departure.
+     */
+    static int legMinutes(Connection connection) {
+        int minutes = minuteOfDay(connection.getArrivalStop()) - minuteOfDay(connection.getDepartureStop());
+        if (connection.getArrivalStop().isNextDay() || minutes < 0) {
+            minutes += MINUTES_PER_DAY;
+        }
+        return minutes;
+    }
+
+    /**
+     * First departure of a connection at or after {@code earliest} on a day in
+     * {@code dayMask}, as a minute counted from the Monday 00:00 that
+     * {@code earliest} is counted from. Returns -1 if the mask is empty.
+     */
+    static int nextDeparture(Connection connection, int earliest, int dayMask) {
+        int minute = minuteOfDay(connection.getDepartureStop());
+        int day = earliest / MINUTES_PER_DAY;
+        if (day * MINUTES_PER_DAY + minute < earliest) {
+            day++;
+        }
+        for (int i = 0; i < 7; i++, day++) {
+            if ((dayMask & (1 << (day % 7))) != 0) {
+                return day * MINUTES_PER_DAY + minute;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Minute at which {@code next} can be boarded after arriving at minute
+     * {@code arrival}: its first departure at least the minimum transfer time
+     * later, or -1 if that means waiting longer than the maximum transfer time.
+     */
+    static int transferDeparture(int arrival, Connection next) {
+        int departure = nextDeparture(next, arrival + ConnectionScanEngine.MIN_TRANSFER_MINUTES,
+                next.getSchedule().getDayMask());
+        return departure < 0 || departure - arrival > ConnectionScanEngine.MAX_TRANSFER_MINUTES ? -1 : departure;
+    }
+
+    /**
+     * True if {@code next} can be boarded after {@code previous} on at least one
+     * of the days {@code previous} runs.
+     */
+    static boolean canTransfer(Connection previous, Connection next) {
+        int departureDays = previous.getSchedule().getDayMask();
+        int arrivalOffset = minuteOfDay(previous.getDepartureStop()) + legMinutes(previous);
+        for (int day = 0; day < 7; day++) {
+            if ((departureDays & (1 << day)) != 0
+                    && transferDeparture(day * MINUTES_PER_DAY + arrivalOffset, next) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Places consecutive legs on the minute-of-week axis: the first boarded on
+     * one of its operating days, every later one at its first departure after
+     * the previous arrival that respects the transfer limits. Of the operating
+     * days the one giving the shortest journey is used. Returns the departure
+     * and arrival minute of every leg in turn, or null if no day works.
+     */
+    static int[] schedule(List<Connection> legs) {
+        Connection first = legs.get(0);
+        int departureDays = first.getSchedule().getDayMask();
+        int[] best = null;
+        for (int day = 0; day < 7; day++) {
+            if ((departureDays & (1 << day)) == 0) {
+                continue;
+            }
+            int[] times = scheduleFrom(legs, day * MINUTES_PER_DAY + minuteOfDay(first.getDepartureStop()));
+            if (times != null && (best == null
+                    || times[times.length - 1] - times[0] < best[best.length - 1] - best[0])) {
+                best = times;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Days of the week, as a mask, on which the first leg runs and every later
+     * leg can still be boarded within the transfer limits.
+     */
+    static int departureDays(List<Connection> legs) {
+        Connection first = legs.get(0);
+        int mask = 0;
+        for (int day = 0; day < 7; day++) {
+            if ((first.getSchedule().getDayMask() & (1 << day)) != 0
+                    && scheduleFrom(legs, day * MINUTES_PER_DAY + minuteOfDay(first.getDepartureStop())) != null) {
+                mask |= 1 << day;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Like {@link #schedule} but ignoring operating days and the maximum
+     * transfer time, so every leg is boarded at its next departure by the
+     * clock. Used for legs that do not form a valid weekly journey.
+     */
+    static int[] clockSchedule(List<Connection> legs) {
+        int[] times = new int[legs.size() * 2];
+        int departure = minuteOfDay(legs.get(0).getDepartureStop());
+        for (int i = 0; i < legs.size(); i++) {
+            if (i > 0) {
+                departure = nextDeparture(legs.get(i), times[2 * i - 1] + ConnectionScanEngine.MIN_TRANSFER_MINUTES,
+                        TrainSchedule.ALL_DAYS);
+            }
+            times[2 * i] = departure;
+            times[2 * i + 1] = departure + legMinutes(legs.get(i));
+        }
+        return times;
+    }
+
+    private static int[] scheduleFrom(List<Connection> legs, int departure) {
+        int[] times = new int[legs.size() * 2];
+        for (int i = 0; i < legs.size(); i++) {
+            if (i > 0) {
+                departure = transferDeparture(times[2 * i - 1], legs.get(i));
+                if (departure < 0) {
+                    return null;
+                }
+            }
+            times[2 * i] = departure;
+            times[2 * i + 1] = departure + legMinutes(legs.get(i));
+        }
+        return times;
+    }
+
+    int size() {
+        return connections.length;
+    }
+
+    int cityCount() {
+        return cities.size();
+    }
+
+    /**
+     * Returns the id of a city, or -1 if no connection touches it.
+     */
+    int cityId(City city) {
+        Integer id = cityIds.get(city);
+        return id == null ? -1 : id;
+    }
+
+    City city(int id) {
+        return cities.get(id);
+    }
+
+    List<City> getCities() {
+        return Collections.unmodifiableList(cities);
+    }
+
+    int departureTime(int event) {
+        return departureTimes[event];
+    }
+
+    int arrivalTime(int event) {
+        return arrivalTimes[event];
+    }
+
+    int departureCity(int event) {
+        return departureCities[event];
+    }
+
+    int arrivalCity(int event) {
+        return arrivalCities[event];
+    }
+
+    /**
+     * First class fare of the event's connection, in cents.
+     */
+    long firstClassFare(int event) {
+        return firstClassFares[event];
+    }
+
+    /**
+     * Second class fare of the event's connection, in cents.
+     */
+    long secondClassFare(int event) {
+        return secondClassFares[event];
+    }
+
+    Connection connection(int event) {
+        return connections[event];
+    }
+
+    /**
+     * Index of the first event departing at or after the given minute of the
+     * (doubled) week.
+     */
+    int firstDepartureAtOrAfter(int minute) {
+        int index = Arrays.binarySearch(departureTimes, minute);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index > 0 && departureTimes[index - 1] == minute) {
+            index--;
+        }
+        return index;
+    }
+
+    /**
+     * Ids of the route patterns leaving a city. A pattern groups the departures
+     * that run between the same two cities with the same train type.
+     */
+    int[] routesFrom(int city) {
+        return routesFrom[city];
+    }
+
+    /**
+     * Events of a route pattern, ordered by departure time.
+     */
+    int[] routeEvents(int route) {
+        return routeEvents[route];
+    }
+
+    private int[][] groupRoutes() {
+        Map<List<Object>, List<Integer>> patterns = new LinkedHashMap<>();
+        for (int event = 0; event < connections.length; event++) {
+            List<Object> key = List.of(departureCities[event], arrivalCities[event],
+                    connections[event].getTrain());
+            patterns.computeIfAbsent(key, k -> new ArrayList<>()).add(event);
+        }
+
+        return patterns.values().stream()
+                .map(events -> events.stream().mapToInt(Integer::intValue).toArray())
+                .toArray(int[][]::new);
+    }
+
+    private int idOf(City city) {
+        return cityIds.computeIfAbsent(city, c -> {
+            cities.add(c);
+            return cities.size() - 1;
+        });
+    }
+}
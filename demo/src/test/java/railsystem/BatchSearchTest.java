@@ -0,0 +1,126 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A query file spanning several chunks and workers gives one line per query,
+ * in input order, with the trips a single search finds and an error line for
+ * every query that does not parse.
+ */
+@ExtendWith(TestTimetables.class)
+class BatchSearchTest {
+    private static final int QUERIES = 400;
+    private static final int LIMIT = 3;
+
+    private final Terminal terminal = Terminal.getInstance();
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void restore() {
+        terminal.setVerbose(true);
+        terminal.getSearchCache().invalidate();
+    }
+
+    @Test
+    void writesOneLinePerQueryInInputOrder() throws IOException {
+        List<Connection> connections = TestTimetables.network();
+        terminal.setConnectionRepo(new ConnectionRepository(connections, true));
+        terminal.setVerbose(false);
+
+        Random random = new Random(23);
+        List<String> lines = new ArrayList<>();
+        Map<Integer, String> queries = new LinkedHashMap<>();
+        Map<Integer, String> bad = new LinkedHashMap<>();
+        lines.add("# departure|earliest departure|arrival");
+        for (int i = 0; i < QUERIES; i++) {
+            if (i % 50 == 7) {
+                lines.add("");
+            }
+            String query;
+            if (i % 40 == 13) {
+                query = i % 80 == 13 ? "Paris|25:99|Berlin" : "Paris" + "|".repeat(12);
+                bad.put(lines.size() + 1, query);
+            } else {
+                // Half the queries follow a connection, the others pair two random cities
+                Connection leg = connections.get(random.nextInt(connections.size()));
+                String from = leg.getDepartureStop().getCity().getName();
+                String to = random.nextBoolean() ? leg.getArrivalStop().getCity().getName()
+                        : connections.get(random.nextInt(connections.size())).getArrivalStop().getCity().getName();
+                query = from + "|" + (random.nextBoolean() ? String.format("%02d:00", random.nextInt(24)) : "")
+                        + "|" + to;
+                queries.put(lines.size() + 1, query);
+            }
+            lines.add(query);
+        }
+        Path input = directory.resolve("queries.txt");
+        Files.write(input, lines);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BatchSearch batch = new BatchSearch(terminal, 4, LIMIT);
+        long failed;
+        try (PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8)) {
+            failed = batch.run(input, out);
+        }
+
+        List<String> output = bytes.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(queries.size() + bad.size(), output.size());
+        assertEquals(bad.size(), failed);
+        assertEquals(output.size(), batch.getLatency().getCount());
+
+        int previous = 0;
+        int withTrips = 0;
+        for (String line : output) {
+            Map<?, ?> json = (Map<?, ?>) Json.parse(line);
+            int lineNumber = ((BigDecimal) json.get("line")).intValueExact();
+            assertTrue(lineNumber > previous, line);
+            previous = lineNumber;
+
+            if (bad.containsKey(lineNumber)) {
+                assertTrue(json.containsKey("error") && !json.containsKey("trips"), line);
+                continue;
+            }
+            SearchCriteria criteria = Terminal.criteriaOf(Arrays.asList(queries.get(lineNumber).split("\\|", -1)));
+            List<Trip> expected = terminal.searchWithCache(criteria, null).getTrips();
+            List<?> trips = (List<?>) json.get("trips");
+            assertEquals(BigDecimal.valueOf(expected.size()), json.get("count"), line);
+            assertEquals(false, json.get("partial"), line);
+            assertEquals(Math.min(LIMIT, expected.size()), trips.size(), line);
+            for (int i = 0; i < trips.size(); i++) {
+                assertEquals(BigDecimal.valueOf(expected.get(i).getDurationMinutes()),
+                        ((Map<?, ?>) trips.get(i)).get("durationMinutes"), line);
+            }
+            if (!trips.isEmpty()) {
+                withTrips++;
+            }
+        }
+        assertTrue(withTrips > QUERIES / 4, "only " + withTrips + " queries found trips");
+    }
+
+    @Test
+    void rejectsBadSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new BatchSearch(terminal, 0, null));
+        assertThrows(IllegalArgumentException.class, () -> new BatchSearch(terminal, 1, -1));
+    }
+}
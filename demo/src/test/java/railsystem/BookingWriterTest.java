@@ -0,0 +1,128 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static railsystem.TestTimetables.DAILY;
+import static railsystem.TestTimetables.connection;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Bookings saved through the group-commit writer are in the database once
+ * their futures complete, a booking that fails does not take its batch with
+ * it, and closing the manager writes what is still queued.
+ */
+@ExtendWith(TestTimetables.class)
+class BookingWriterTest {
+    private static final int BOOKINGS = 200;
+    private static final List<Connection> LEGS = List.of(
+            connection("GROUP-1", DAILY, "GroupA", "08:00", "GroupB", "09:00", "20", "10"));
+    private static final Trip TRIP = new Trip(LEGS);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void everyCompletedBookingIsDurable() {
+        String url = url("durable.db");
+        List<CompletableFuture<Void>> saved = new ArrayList<>();
+        try (DBManager db = new DBManager(url)) {
+            db.saveConnections(LEGS);
+            db.startBookingWriter(16, Duration.ofMillis(5));
+            for (int i = 0; i < BOOKINGS; i++) {
+                saved.add(db.saveBookingAsync(booking("GROUP-" + i)));
+            }
+            saved.forEach(CompletableFuture::join);
+        }
+
+        try (DBManager reopened = new DBManager(url)) {
+            for (int i = 0; i < BOOKINGS; i++) {
+                assertEquals(1, reopened.getTravellerBookings("GROUP-" + i).size(), "GROUP-" + i);
+            }
+        }
+    }
+
+    @Test
+    void failedBookingIsRolledBackAlone() {
+        String url = url("isolation.db");
+        Trip unknown = new Trip(List.of(connection("GROUP-UNSAVED", DAILY, "GroupA", "08:00", "GroupB", "09:00")));
+        try (DBManager db = new DBManager(url)) {
+            db.saveConnections(LEGS);
+            // The three bookings fill one batch
+            db.startBookingWriter(3, Duration.ofSeconds(10));
+            CompletableFuture<Void> before = db.saveBookingAsync(booking("GROUP-BEFORE"));
+            CompletableFuture<Void> failed = db.saveBookingAsync(new Booking(List.of(
+                    new Ticket(unknown, Traveller.getInstance("Bad", "Booking", "GROUP-BAD"), "first"))));
+            CompletableFuture<Void> after = db.saveBookingAsync(booking("GROUP-AFTER"));
+
+            before.join();
+            after.join();
+            assertThrows(CompletionException.class, failed::join);
+
+            // Saving through the writer reports the failure like a direct save
+            db.stopBookingWriter();
+            db.startBookingWriter(1, Duration.ZERO);
+            assertThrows(PersistenceException.class, () -> db.saveBooking(new Booking(List.of(
+                    new Ticket(unknown, Traveller.getInstance("Bad", "Booking", "GROUP-BAD"), "first")))));
+        }
+
+        try (DBManager reopened = new DBManager(url)) {
+            assertEquals(1, reopened.getTravellerBookings("GROUP-BEFORE").size());
+            assertEquals(1, reopened.getTravellerBookings("GROUP-AFTER").size());
+            assertFalse(reopened.travellerExists("GROUP-BAD"));
+        }
+    }
+
+    @Test
+    void closeWritesQueuedBookings() {
+        String url = url("close.db");
+        List<CompletableFuture<Void>> saved = new ArrayList<>();
+        DBManager db = new DBManager(url);
+        db.saveConnections(LEGS);
+        // A batch that never fills and a delay longer than the test
+        db.startBookingWriter(BOOKINGS * 2, Duration.ofMinutes(1));
+        for (int i = 0; i < BOOKINGS; i++) {
+            saved.add(db.saveBookingAsync(booking("GROUP-CLOSE-" + i)));
+        }
+        CompletableFuture<Void> direct = CompletableFuture.runAsync(() -> {
+            try {
+                db.saveBooking(booking("GROUP-CLOSE-DIRECT"));
+            } catch (PersistenceException e) {
+                // Closed first; only a hang would fail the test
+            }
+        });
+
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            db.close();
+            direct.join();
+        });
+        saved.forEach(CompletableFuture::join);
+        assertThrows(IllegalStateException.class, () -> db.startBookingWriter(1, Duration.ZERO));
+
+        try (DBManager reopened = new DBManager(url)) {
+            for (int i = 0; i < BOOKINGS; i++) {
+                assertTrue(reopened.travellerExists("GROUP-CLOSE-" + i), "GROUP-CLOSE-" + i);
+            }
+        }
+    }
+
+    private String url(String file) {
+        return "jdbc:sqlite:" + directory.resolve(file);
+    }
+
+    private static Booking booking(String travellerId) {
+        Traveller traveller = Traveller.getInstance("Group", "Commit", travellerId);
+        return new Booking(List.of(new Ticket(TRIP, traveller, "second")));
+    }
+}
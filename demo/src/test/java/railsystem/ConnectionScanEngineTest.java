@@ -0,0 +1,184 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static railsystem.TestTimetables.MONDAY;
+import static railsystem.TestTimetables.connection;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(TestTimetables.class)
+class ConnectionScanEngineTest {
+    private static final int QUERIES = 1000;
+
+    private static SearchCriteria mondayFrom(String from, String to) {
+        return SearchCriteria.builder()
+                .departureCity(from)
+                .arrivalCity(to)
+                .travelDays(Set.of(DayOfWeek.MONDAY))
+                .build();
+    }
+
+    private static List<String> routesOf(List<Trip> trips) {
+        return trips.stream()
+                .map(trip -> String.join(">", trip.getConnections().stream().map(Connection::getRouteId).toList()))
+                .toList();
+    }
+
+    @Test
+    void fasterArrivalWithMoreLegsDoesNotBlockFewerLegsUnderMaxTransfers() {
+        ConnectionRepository repository = new ConnectionRepository(List.of(
+                connection("AB", MONDAY, "CsaA", "08:00", "CsaB", "09:00"),
+                connection("BC", MONDAY, "CsaB", "09:30", "CsaC", "10:00"),
+                connection("AC", MONDAY, "CsaA", "08:00", "CsaC", "11:00"),
+                connection("CD", MONDAY, "CsaC", "12:00", "CsaD", "13:00")));
+        SearchCriteria criteria = mondayFrom("CsaA", "CsaD");
+        criteria.setMaxTransfers(1);
+
+        assertEquals(List.of("AC>CD"), routesOf(new ConnectionScanEngine().findJourneys(repository, criteria)));
+    }
+
+    @Test
+    void laterArrivalCanCatchADepartureBeyondTheTransferWindowOfTheEarliest() {
+        ConnectionRepository repository = new ConnectionRepository(List.of(
+                connection("EG", MONDAY, "CsaE", "08:00", "CsaG", "09:00"),
+                connection("EF", MONDAY, "CsaE", "08:00", "CsaF", "08:30"),
+                connection("FG", MONDAY, "CsaF", "20:00", "CsaG", "21:00"),
+                // Leaves 35.5 hours after the earliest arrival at CsaG but 23.5 hours after the later one
+                connection("GH", Set.of(DayOfWeek.TUESDAY), "CsaG", "20:30", "CsaH", "22:00")));
+
+        assertEquals(List.of("EF>FG>GH"),
+                routesOf(new ConnectionScanEngine().findJourneys(repository, mondayFrom("CsaE", "CsaH"))));
+    }
+
+    @Test
+    void arrivalAfterTheLatestArrivalDoesNotBoundTheScan() {
+        ConnectionRepository repository = new ConnectionRepository(List.of(
+                connection("JK", MONDAY, "CsaJ", "08:00", "CsaK", "09:00"),
+                connection("JL", MONDAY, "CsaJ", "10:00", "CsaL", "11:00"),
+                connection("LK", Set.of(DayOfWeek.TUESDAY), "CsaL", "07:00", "CsaK", "08:00")));
+        SearchCriteria criteria = mondayFrom("CsaJ", "CsaK");
+        criteria.setLatestArrival(LocalTime.of(8, 50));
+
+        assertEquals(List.of("JL>LK"), routesOf(new ConnectionScanEngine().findJourneys(repository, criteria)));
+    }
+
+    /**
+     * On the real network, limited to the nested loops' three legs: the scan must
+     * find a journey whenever one of the nested loops' trips can be taken on the
+     * travel day, arriving no later than the best of them. The nested loops also
+     * keep trips that only run on some of the first leg's days, or that change
+     * trains in the departure or arrival city, which the scan never does; those
+     * are left out.
+     */
+    @Test
+    void arrivesNoLaterThanTheNestedLoopSearch() {
+        List<Connection> connections = TestTimetables.network();
+        ConnectionRepository repository = new ConnectionRepository(connections, true);
+        Terminal terminal = Terminal.getInstance();
+        terminal.setConnectionRepo(repository);
+        terminal.setSearchEngine(Terminal.SearchEngine.NESTED_LOOP);
+        terminal.setVerbose(false);
+        ConnectionScanEngine engine = new ConnectionScanEngine();
+
+        Random random = new Random(42);
+        int compared = 0;
+        try {
+            for (int i = 0; i < QUERIES; i++) {
+                SearchCriteria criteria = randomQuery(random, connections);
+                if (criteria.getDepartureCity().equals(criteria.getArrivalCity())
+                        || !repository.search(criteria).isEmpty()) {
+                    // The nested loops only look for transfers when there is no direct connection
+                    continue;
+                }
+
+                List<Trip> nested = terminal.searchForConnections(criteria);
+                List<Trip> scanned = engine.findJourneys(repository, criteria);
+                String query = criteria.getDepartureCity() + " -> " + criteria.getArrivalCity() + " "
+                        + criteria.getTravelDays() + " " + criteria.getEarliestDeparture() + " until "
+                        + criteria.getLatestArrival();
+
+                DayOfWeek day = criteria.getTravelDays().iterator().next();
+                int earliest = nested.stream()
+                        .filter(trip -> trip.getConnections().stream().skip(1)
+                                .map(leg -> leg.getDepartureStop().getCity().getName())
+                                .noneMatch(city -> city.equals(criteria.getDepartureCity())
+                                        || city.equals(criteria.getArrivalCity())))
+                        .mapToInt(trip -> arrivalOn(trip.getConnections(), day))
+                        .min()
+                        .orElse(Integer.MAX_VALUE);
+                if (earliest == Integer.MAX_VALUE) {
+                    continue;
+                }
+                assertEquals(1, scanned.size(), query);
+                assertTrue(arrivalOn(scanned.get(0).getConnections(), day) <= earliest, query);
+                compared++;
+            }
+        } finally {
+            terminal.setVerbose(true);
+        }
+        assertTrue(compared > QUERIES / 20, "only " + compared + " queries had transfer journeys");
+    }
+
+    /**
+     * Minute of the week the legs arrive when the first is boarded on {@code day}
+     * and every later one at its first departure within the transfer limits, or
+     * {@link Integer#MAX_VALUE} if that is not possible.
+     */
+    private static int arrivalOn(List<Connection> legs, DayOfWeek day) {
+        Connection first = legs.get(0);
+        if (!first.getSchedule().operatesOn(day)) {
+            return Integer.MAX_VALUE;
+        }
+        int arrival = (day.getValue() - 1) * WeeklyTimetable.MINUTES_PER_DAY
+                + WeeklyTimetable.minuteOfDay(first.getDepartureStop()) + WeeklyTimetable.legMinutes(first);
+        for (Connection leg : legs.subList(1, legs.size())) {
+            int departure = WeeklyTimetable.transferDeparture(arrival, leg);
+            if (departure < 0) {
+                return Integer.MAX_VALUE;
+            }
+            arrival = departure + WeeklyTimetable.legMinutes(leg);
+        }
+        return arrival;
+    }
+
+    /**
+     * A query from a random city to one up to three hops away on one travel day,
+     * with at most two transfers and sometimes a latest arrival.
+     */
+    private static SearchCriteria randomQuery(Random random, List<Connection> connections) {
+        Connection first = connections.get(random.nextInt(connections.size()));
+        String from = first.getDepartureStop().getCity().getName();
+        String to = first.getArrivalStop().getCity().getName();
+        int hops = 1 + random.nextInt(2);
+        for (int hop = 0; hop < hops; hop++) {
+            String current = to;
+            List<Connection> departures = connections.stream()
+                    .filter(c -> c.getDepartureStop().getCity().getName().equals(current))
+                    .toList();
+            if (departures.isEmpty()) {
+                break;
+            }
+            to = departures.get(random.nextInt(departures.size())).getArrivalStop().getCity().getName();
+        }
+
+        SearchCriteria criteria = SearchCriteria.builder()
+                .departureCity(from)
+                .arrivalCity(to)
+                .earliestDeparture(LocalTime.of(random.nextInt(24), 0))
+                .travelDays(EnumSet.of(DayOfWeek.of(1 + random.nextInt(7))))
+                .build();
+        criteria.setMaxTransfers(2);
+        if (random.nextInt(3) == 0) {
+            criteria.setLatestArrival(LocalTime.of(12 + random.nextInt(12), 0));
+        }
+        return criteria;
+    }
+}
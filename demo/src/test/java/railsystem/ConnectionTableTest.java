@@ -0,0 +1,82 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static railsystem.TestTimetables.DAILY;
+import static railsystem.TestTimetables.connection;
+
+import java.math.BigDecimal;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * The column filter must accept exactly the connections that
+ * {@link SearchCriteria#matches} accepts. The repository search built on it
+ * returns them in file order, or in index order when the repository is indexed.
+ */
+@ExtendWith(TestTimetables.class)
+class ConnectionTableTest {
+    private static final int QUERIES = 2000;
+
+    @Test
+    void filterAcceptsTheSameRowsAsMatchingTheConnections() {
+        List<Connection> connections = TestTimetables.network();
+        ConnectionTable table = new ConnectionTable(connections);
+        ConnectionRepository indexed = new ConnectionRepository(connections, true);
+        ConnectionRepository scanned = new ConnectionRepository(connections, false);
+        assertTrue(table.isExact());
+
+        Random random = new Random(7);
+        for (int i = 0; i < QUERIES; i++) {
+            SearchCriteria criteria = TestTimetables.randomCriteria(random, connections);
+            IntPredicate filter = table.filter(criteria);
+            List<Connection> expected = connections.stream().filter(criteria::matches).toList();
+
+            for (int row = 0; row < table.size(); row++) {
+                assertEquals(criteria.matches(table.connection(row)), filter.test(row), criteria + " row " + row);
+            }
+            assertEquals(expected, scanned.search(criteria), criteria.toString());
+            List<Connection> found = indexed.search(criteria);
+            assertEquals(expected.size(), found.size(), criteria.toString());
+            assertEquals(Set.copyOf(expected), Set.copyOf(found), criteria.toString());
+        }
+    }
+
+    @Test
+    void boundsWithSecondsAndFractionalCentsAreRoundedInwards() {
+        ConnectionTable table = new ConnectionTable(List.of(
+                connection("ROW", DAILY, "TableA", "08:00", "TableB", "09:00", "10.00", "5.00")));
+
+        assertFalse(table.filter(criteria(LocalTime.of(8, 0, 30), null, null)).test(0));
+        assertTrue(table.filter(criteria(null, LocalTime.of(9, 0, 30), null)).test(0));
+        assertTrue(table.filter(criteria(null, null, new BigDecimal("10.009"))).test(0));
+        assertFalse(table.filter(criteria(null, null, new BigDecimal("9.999"))).test(0));
+    }
+
+    @Test
+    void tableWithSecondsIsNotExactAndSearchesStillMatch() {
+        List<Connection> connections = List.of(
+                connection("EARLY", DAILY, "TableC", "08:00:30", "TableD", "09:00"),
+                connection("LATE", DAILY, "TableC", "08:01", "TableD", "09:00"));
+        SearchCriteria criteria = criteria(LocalTime.of(8, 0, 45), null, null);
+        criteria.setDepartureCity("TableC");
+
+        assertFalse(new ConnectionTable(connections).isExact());
+        assertEquals(List.of("LATE"), new ConnectionRepository(connections, true).search(criteria).stream()
+                .map(Connection::getRouteId).toList());
+    }
+
+    private static SearchCriteria criteria(LocalTime earliest, LocalTime latest, BigDecimal firstClassRate) {
+        SearchCriteria criteria = new SearchCriteria();
+        criteria.setEarliestDeparture(earliest);
+        criteria.setLatestArrival(latest);
+        criteria.setFirstClassRate(firstClassRate);
+        return criteria;
+    }
+}
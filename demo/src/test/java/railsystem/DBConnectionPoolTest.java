@@ -0,0 +1,133 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static railsystem.TestTimetables.DAILY;
+import static railsystem.TestTimetables.connection;
+
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The pool runs the database in WAL mode with every commit synced, so readers
+ * see the last commit without waiting for a write in progress, and it refuses
+ * calls once closed.
+ */
+@ExtendWith(TestTimetables.class)
+class DBConnectionPoolTest {
+    @TempDir
+    Path directory;
+
+    private DBConnectionPool pool;
+
+    @BeforeEach
+    void open() throws SQLException {
+        pool = new DBConnectionPool("jdbc:sqlite:" + directory.resolve("pool.db"), 2);
+        pool.write(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE rows (id INTEGER PRIMARY KEY)");
+            }
+            return null;
+        });
+    }
+
+    @AfterEach
+    void close() {
+        pool.close();
+    }
+
+    @Test
+    void runsInWalModeAndSyncsEveryCommit() throws SQLException {
+        assertEquals("wal", pool.read(conn -> query(conn, "PRAGMA journal_mode")));
+        // 2 is FULL
+        assertEquals("2", pool.write(conn -> query(conn, "PRAGMA synchronous")));
+    }
+
+    @Test
+    void readersSeeTheLastCommitWhileAWriteIsOpen() throws Exception {
+        pool.write(conn -> {
+            conn.setAutoCommit(false);
+            insert(conn, 1);
+            // Another thread reads while this transaction holds the write lock
+            CompletableFuture<String> read = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return pool.read(conn2 -> query(conn2, "SELECT COUNT(*) FROM rows"));
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            try {
+                assertEquals("0", read.get(10, TimeUnit.SECONDS));
+            } catch (Exception e) {
+                throw new SQLException(e);
+            }
+            conn.commit();
+            return null;
+        });
+
+        assertEquals("1", pool.read(conn -> query(conn, "SELECT COUNT(*) FROM rows")));
+    }
+
+    @Test
+    void readersAreReadOnly() {
+        assertThrows(SQLException.class, () -> pool.read(conn -> {
+            insert(conn, 1);
+            return null;
+        }));
+    }
+
+    @Test
+    void rollsBackATransactionTheWorkLeftOpen() throws SQLException {
+        pool.write(conn -> {
+            conn.setAutoCommit(false);
+            insert(conn, 1);
+            return null;
+        });
+
+        assertEquals("0", pool.read(conn -> query(conn, "SELECT COUNT(*) FROM rows")));
+        assertEquals(true, pool.write(conn -> conn.getAutoCommit()));
+    }
+
+    @Test
+    void rejectsCallsOnceClosed() {
+        pool.close();
+
+        assertThrows(SQLException.class, () -> pool.read(conn -> query(conn, "SELECT 1")));
+        assertThrows(SQLException.class, () -> pool.write(conn -> query(conn, "SELECT 1")));
+    }
+
+    @Test
+    void closedManagerRejectsBookings() {
+        List<Connection> legs = List.of(connection("POOL-1", DAILY, "PoolA", "08:00", "PoolB", "09:00"));
+        Booking booking = new Booking(List.of(
+                new Ticket(new Trip(legs), Traveller.getInstance("Pool", "Closed", "POOL-T"), "first")));
+        DBManager db = new DBManager("jdbc:sqlite:" + directory.resolve("manager.db"));
+        db.saveConnections(legs);
+        db.close();
+
+        assertThrows(PersistenceException.class, () -> db.saveBooking(booking));
+    }
+
+    private static String query(java.sql.Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    private static void insert(java.sql.Connection conn, int id) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO rows (id) VALUES (" + id + ")");
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static railsystem.TestTimetables.DAILY;
+import static railsystem.TestTimetables.connection;
+
+import java.time.DayOfWeek;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(TestTimetables.class)
+class DominanceFilterTest {
+    private static final Set<DayOfWeek> SUNDAY = EnumSet.of(DayOfWeek.SUNDAY);
+
+    private static Trip trip(String routeId, Set<DayOfWeek> days, String departure, String arrival,
+            String firstClass, String secondClass) {
+        return new Trip(List.of(
+                connection(routeId, days, "DominanceA", departure, "DominanceB", arrival, firstClass, secondClass)));
+    }
+
+    private static List<String> routes(DominanceFilter filter) {
+        return filter.getTrips().stream().map(trip -> trip.getConnections().get(0).getRouteId()).toList();
+    }
+
+    private final Trip slower = trip("SLOWER", DAILY, "08:00", "11:00", "10", "5");
+    private final Trip faster = trip("FASTER", DAILY, "08:00", "10:00", "10", "5");
+    private final Trip cheaper = trip("CHEAPER", DAILY, "09:00", "12:00", "5", "2");
+    private final Trip duplicate = trip("DUPLICATE", DAILY, "08:00", "10:00", "10", "5");
+
+    @Test
+    void filterKeepsUndominatedTripsInTheirOriginalOrder() {
+        DominanceFilter filter = DominanceFilter.filter(List.of(slower, faster, cheaper, duplicate));
+
+        assertEquals(List.of("FASTER", "CHEAPER"), routes(filter));
+        assertEquals(2, filter.getPrunedCount());
+    }
+
+    @Test
+    void offeringOneByOneKeepsTheSameTrips() {
+        DominanceFilter filter = new DominanceFilter();
+        for (Trip trip : List.of(slower, faster, cheaper, duplicate)) {
+            filter.offer(trip);
+        }
+
+        assertEquals(List.of("FASTER", "CHEAPER"), routes(filter));
+        assertEquals(2, filter.getPrunedCount());
+    }
+
+    @Test
+    void tripRunningOnFewerDaysDoesNotPruneADailyOne() {
+        Trip sundayOnly = trip("SUNDAY", SUNDAY, "08:00", "09:00", "10", "5");
+
+        DominanceFilter filter = DominanceFilter.filter(List.of(faster, sundayOnly));
+
+        assertEquals(List.of("FASTER", "SUNDAY"), routes(filter));
+        assertEquals(0, filter.getPrunedCount());
+    }
+
+    @Test
+    void dailyTripPrunesAWorseOneRunningOnFewerDays() {
+        Trip sundayOnly = trip("SUNDAY", SUNDAY, "08:00", "10:30", "10", "5");
+
+        DominanceFilter filter = new DominanceFilter();
+        filter.offer(sundayOnly);
+        filter.offer(faster);
+
+        assertEquals(List.of("FASTER"), routes(filter));
+        assertEquals(1, filter.getPrunedCount());
+    }
+}
@@ -0,0 +1,100 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static railsystem.TestTimetables.DAILY;
+import static railsystem.TestTimetables.connection;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(TestTimetables.class)
+class FareBudgetTest {
+    private static final int QUERIES = 1000;
+
+    @Test
+    void boundsEachClassByItsBudgetRoundedDown() {
+        SearchCriteria criteria = new SearchCriteria();
+        criteria.setMaxTotalFirstClassRate(new BigDecimal("100.009"));
+        criteria.setMaxTotalSecondClassRate(new BigDecimal("50"));
+        FareBudget budget = new FareBudget(criteria, null);
+
+        assertFalse(budget.exceeds(10_000, 5_000));
+        assertTrue(budget.exceeds(10_001, 0));
+        assertTrue(budget.exceeds(0, 5_001));
+        assertFalse(new FareBudget(new SearchCriteria(), null).exceeds(Long.MAX_VALUE, Long.MAX_VALUE));
+    }
+
+    @Test
+    void addsTheFaresOfEveryLeg() {
+        Connection first = connection("FIRST", DAILY, "BudgetA", "08:00", "BudgetB", "09:00", "40", "20");
+        Connection second = connection("SECOND", DAILY, "BudgetB", "10:00", "BudgetC", "11:00", "40", "20");
+        Connection third = connection("THIRD", DAILY, "BudgetC", "12:00", "BudgetD", "13:00", "40", "20");
+        SearchCriteria criteria = new SearchCriteria();
+        criteria.setMaxTotalFirstClassRate(new BigDecimal("80"));
+        FareBudget budget = new FareBudget(criteria, null);
+
+        assertFalse(budget.exceeds(first));
+        assertFalse(budget.exceeds(first, second));
+        assertTrue(budget.exceeds(first, second, third));
+    }
+
+    /**
+     * Cutting branches over the budget while searching must keep exactly the
+     * transfer trips that an unbounded search followed by the budget check
+     * keeps.
+     */
+    @Test
+    void pruningKeepsEveryTripWithinTheBudget() {
+        List<Connection> connections = TestTimetables.network();
+        Terminal terminal = Terminal.getInstance();
+        ConnectionRepository repository = new ConnectionRepository(connections, true);
+        terminal.setConnectionRepo(repository);
+        terminal.setSearchEngine(Terminal.SearchEngine.NESTED_LOOP);
+        terminal.setVerbose(false);
+
+        Random random = new Random(13);
+        int budgeted = 0;
+        try {
+            for (int i = 0; i < QUERIES; i++) {
+                Connection first = connections.get(random.nextInt(connections.size()));
+                String from = first.getDepartureStop().getCity().getName();
+                List<Connection> onwards = connections.stream()
+                        .filter(c -> c.getDepartureStop().getCity().equals(first.getArrivalStop().getCity()))
+                        .toList();
+                String to = onwards.get(random.nextInt(onwards.size())).getArrivalStop().getCity().getName();
+
+                SearchCriteria unbounded = new SearchCriteria();
+                unbounded.setDepartureCity(from);
+                unbounded.setArrivalCity(to);
+                if (from.equals(to) || !repository.search(unbounded).isEmpty()) {
+                    // A direct connection over budget makes the search look for transfers instead
+                    continue;
+                }
+                SearchCriteria bounded = new SearchCriteria(unbounded);
+                bounded.setMaxTotalFirstClassRate(BigDecimal.valueOf(100 + random.nextInt(300)));
+                bounded.setMaxTotalSecondClassRate(BigDecimal.valueOf(50 + random.nextInt(200)));
+
+                List<Trip> expected = terminal.searchForConnections(unbounded).stream()
+                        .filter(bounded::isWithinBudget)
+                        .toList();
+                List<Trip> found = terminal.searchForConnections(bounded);
+                assertEquals(legsOf(expected), legsOf(found), from + " -> " + to);
+                if (!found.isEmpty()) {
+                    budgeted++;
+                }
+            }
+        } finally {
+            terminal.setVerbose(true);
+        }
+        assertTrue(budgeted > QUERIES / 10, "only " + budgeted + " queries had trips within budget");
+    }
+
+    private static List<List<Connection>> legsOf(List<Trip> trips) {
+        return trips.stream().map(Trip::getConnections).toList();
+    }
+}
@@ -0,0 +1,44 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static railsystem.TestTimetables.DAILY;
+import static railsystem.TestTimetables.connection;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(TestTimetables.class)
+class LegMemoTest {
+
+    @Test
+    void servesOnlyDeparturesWithinTheTransferLimitsWrappingPastMidnight() {
+        Connection arriving = connection("IN", DAILY, "MemoA", "22:00", "MemoB", "23:50");
+        ConnectionRepository repository = new ConnectionRepository(List.of(
+                arriving,
+                connection("00:05", DAILY, "MemoB", "00:05", "MemoC", "01:00"),
+                connection("00:10", DAILY, "MemoB", "00:10", "MemoC", "01:00"),
+                connection("12:00", DAILY, "MemoB", "12:00", "MemoC", "13:00"),
+                connection("23:50", DAILY, "MemoB", "23:50", "MemoC", "23:59"),
+                connection("23:55", DAILY, "MemoB", "23:55", "MemoC", "23:59")), true);
+        LegMemo memo = new LegMemo(repository, new SearchCriteria());
+
+        List<String> connecting = memo.connecting(arriving, null).stream().map(Connection::getRouteId).toList();
+
+        // 00:05 and 23:55 are less than 20 minutes after arriving; 23:50 next day is exactly 24 hours
+        assertEquals(List.of("00:10", "12:00", "23:50"), connecting);
+    }
+
+    @Test
+    void filtersByArrivalCity() {
+        Connection arriving = connection("IN", DAILY, "MemoD", "06:00", "MemoE", "07:00");
+        ConnectionRepository repository = new ConnectionRepository(List.of(
+                arriving,
+                connection("TO-F", DAILY, "MemoE", "08:00", "MemoF", "09:00"),
+                connection("TO-G", DAILY, "MemoE", "09:00", "MemoG", "10:00")), true);
+        LegMemo memo = new LegMemo(repository, new SearchCriteria());
+
+        assertEquals(List.of("TO-G"),
+                memo.connecting(arriving, "MemoG").stream().map(Connection::getRouteId).toList());
+    }
+}
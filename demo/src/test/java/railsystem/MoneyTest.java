@@ -0,0 +1,70 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static railsystem.TestTimetables.DAILY;
+import static railsystem.TestTimetables.connection;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+@ExtendWith(TestTimetables.class)
+class MoneyTest {
+
+    @Test
+    void convertsRoundingHalfUpToTheCent() {
+        assertEquals(1001, Money.of(new BigDecimal("10.005")).getCents());
+        assertEquals(1000, Money.of(new BigDecimal("10.0049")).getCents());
+        assertEquals(-1001, Money.of(new BigDecimal("-10.005")).getCents());
+        assertEquals("12.50", Money.of(new BigDecimal("12.5")).toString());
+        assertEquals(new BigDecimal("12.50"), Money.ofCents(1250).toBigDecimal());
+    }
+
+    @Test
+    void comparesWithAmountsThatHaveFractionalCents() {
+        Money fare = Money.ofCents(1000);
+
+        assertTrue(fare.isAtMost(new BigDecimal("10.009")));
+        assertTrue(fare.isAtMost(new BigDecimal("10")));
+        assertFalse(fare.isAtMost(new BigDecimal("9.999")));
+        assertEquals(Long.MAX_VALUE, Money.floorCents(new BigDecimal("1e30")));
+        assertEquals(-1, Money.floorCents(new BigDecimal("-0.001")));
+    }
+
+    @Test
+    void sumsExactlyAndFailsOnOverflow() {
+        assertEquals(Money.ofCents(30), Money.ofCents(10).plus(Money.ofCents(20)));
+        assertEquals(Money.ZERO, Money.ofCents(0));
+        assertThrows(ArithmeticException.class, () -> Money.ofCents(Long.MAX_VALUE).plus(Money.ofCents(1)));
+    }
+
+    @Test
+    void faresSurviveADatabaseRoundTrip(@TempDir Path directory) {
+        List<Connection> legs = List.of(
+                connection("MONEY-1", DAILY, "MoneyA", "08:00", "MoneyB", "09:00", "12.35", "7.10"),
+                connection("MONEY-2", DAILY, "MoneyB", "09:30", "MoneyC", "10:00", "0.10", "0.20"));
+        Trip trip = new Trip(legs);
+        Traveller traveller = Traveller.getInstance("Ada", "Lovelace", "MONEY-T");
+
+        try (DBManager db = new DBManager("jdbc:sqlite:" + directory.resolve("money.db"))) {
+            db.saveConnections(legs);
+            db.saveBooking(new Booking(List.of(new Ticket(trip, traveller, "first"))));
+
+            List<Connection> loaded = db.loadConnections();
+            assertEquals(List.of(Money.ofCents(1235), Money.ofCents(10)),
+                    loaded.stream().map(leg -> leg.getTicketRates().getFirstClass()).toList());
+            assertEquals(List.of(Money.ofCents(710), Money.ofCents(20)),
+                    loaded.stream().map(leg -> leg.getTicketRates().getSecondClass()).toList());
+
+            Trip saved = db.getTravellerBookings("MONEY-T").get(0).getTrip();
+            assertEquals(Money.ofCents(1245), saved.getTotalFirstClassRate());
+            assertEquals(Money.ofCents(730), saved.getTotalSecondClassRate());
+        }
+    }
+}
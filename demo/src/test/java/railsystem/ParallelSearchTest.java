@@ -0,0 +1,83 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The parallel first-leg expansion must return the same trips, in the same
+ * order, as the sequential search.
+ */
+class ParallelSearchTest {
+    private static final int QUERIES = 3000;
+
+    private final Terminal terminal = Terminal.getInstance();
+    private List<Connection> connections;
+
+    @BeforeEach
+    void loadNetwork() {
+        connections = TestTimetables.network();
+        terminal.setConnectionRepo(new ConnectionRepository(connections, true));
+        terminal.setSearchEngine(Terminal.SearchEngine.NESTED_LOOP);
+        terminal.setVerbose(false);
+    }
+
+    @AfterEach
+    void restore() {
+        terminal.setParallelSearch(false);
+        terminal.setVerbose(true);
+    }
+
+    @Test
+    void parallelSearchMatchesSequentialTripForTrip() {
+        Random random = new Random(42);
+        for (int i = 0; i < QUERIES; i++) {
+            List<String> args = randomQuery(random, i);
+
+            terminal.setParallelSearch(false);
+            terminal.getSearchCache().invalidate();
+            List<List<Connection>> sequential = legsOf(terminal.createSearch(args));
+
+            terminal.setParallelSearch(true);
+            terminal.getSearchCache().invalidate();
+            List<List<Connection>> parallel = legsOf(terminal.createSearch(args));
+
+            assertEquals(sequential, parallel, String.join("|", args));
+        }
+    }
+
+    /**
+     * A query between a random city and one up to three hops away, with an
+     * earliest departure and a travel day on some of them.
+     */
+    private List<String> randomQuery(Random random, int i) {
+        Connection first = connections.get(random.nextInt(connections.size()));
+        String from = first.getDepartureStop().getCity().getName();
+        String to = first.getArrivalStop().getCity().getName();
+        int hops = random.nextInt(3);
+        for (int hop = 0; hop < hops; hop++) {
+            String current = to;
+            List<Connection> departures = connections.stream()
+                    .filter(c -> c.getDepartureStop().getCity().getName().equals(current))
+                    .toList();
+            if (departures.isEmpty()) {
+                break;
+            }
+            to = departures.get(random.nextInt(departures.size())).getArrivalStop().getCity().getName();
+        }
+        return List.of(from, i % 3 == 0 ? "08:00" : "", to, "", "", i % 4 == 0 ? "MONDAY" : "");
+    }
+
+    private static List<List<Connection>> legsOf(List<Trip> trips) {
+        List<List<Connection>> legs = new ArrayList<>();
+        for (Trip trip : trips) {
+            legs.add(trip.getConnections());
+        }
+        return legs;
+    }
+}
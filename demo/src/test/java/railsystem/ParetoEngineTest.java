@@ -0,0 +1,56 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static railsystem.TestTimetables.MONDAY;
+import static railsystem.TestTimetables.connection;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(TestTimetables.class)
+class ParetoEngineTest {
+
+    @Test
+    void shortJourneyArrivingTooLateDoesNotPruneLongerOneInTime() {
+        ConnectionRepository repository = new ConnectionRepository(List.of(
+                connection("LONG", MONDAY, "ParetoA", "06:00", "ParetoB", "08:45"),
+                connection("SHORT", MONDAY, "ParetoA", "08:00", "ParetoB", "09:00")));
+        SearchCriteria criteria = SearchCriteria.builder()
+                .departureCity("ParetoA")
+                .arrivalCity("ParetoB")
+                .earliestDeparture(LocalTime.of(5, 0))
+                .latestArrival(LocalTime.of(8, 50))
+                .travelDays(Set.of(DayOfWeek.MONDAY))
+                .build();
+
+        List<Trip> trips = new ParetoEngine().findJourneys(repository, criteria);
+
+        assertEquals(1, trips.size());
+        assertEquals("LONG", trips.get(0).getConnections().get(0).getRouteId());
+    }
+
+    @Test
+    void equalJourneyFoundOnAnotherDayReplacesOneRunningOnFewerDays() {
+        Set<DayOfWeek> mondayAndTuesday = EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.TUESDAY);
+        ConnectionRepository repository = new ConnectionRepository(List.of(
+                connection("VIA-E", mondayAndTuesday, "ParetoC", "08:00", "ParetoE", "09:00"),
+                connection("E-D", MONDAY, "ParetoE", "10:00", "ParetoD", "11:00"),
+                connection("VIA-F", mondayAndTuesday, "ParetoC", "08:30", "ParetoF", "09:30"),
+                connection("F-D", mondayAndTuesday, "ParetoF", "10:30", "ParetoD", "11:30")));
+        SearchCriteria criteria = SearchCriteria.builder()
+                .departureCity("ParetoC")
+                .arrivalCity("ParetoD")
+                .travelDays(mondayAndTuesday)
+                .build();
+
+        List<Trip> trips = new ParetoEngine().findJourneys(repository, criteria);
+
+        // On Monday the journey via E arrives first and bounds the equally good one via F, which alone runs on Tuesday
+        assertEquals(List.of("VIA-F"), trips.stream().map(trip -> trip.getConnections().get(0).getRouteId()).toList());
+    }
+}
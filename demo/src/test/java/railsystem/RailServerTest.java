@@ -0,0 +1,154 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static railsystem.TestTimetables.DAILY;
+import static railsystem.TestTimetables.connection;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Each endpoint over real HTTP on a free port: searching, re-sorting, booking
+ * and the status codes for requests the server rejects.
+ */
+@ExtendWith(TestTimetables.class)
+class RailServerTest {
+    private final Terminal terminal = Terminal.getInstance();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private RailServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        // The faster train is the dearer one, so the two sorts disagree
+        terminal.setConnectionRepo(new ConnectionRepository(List.of(
+                connection("FAST", DAILY, "ServerA", "08:00", "ServerB", "10:00", "50", "30"),
+                connection("SLOW", DAILY, "ServerA", "09:00", "ServerB", "13:00", "40", "20")), true));
+        terminal.setDbManager(null);
+        terminal.setVerbose(false);
+        server = new RailServer(terminal, 0);
+        server.start(System.nanoTime());
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+        terminal.setVerbose(true);
+        terminal.getSearchCache().invalidate();
+    }
+
+    @Test
+    void searchesAndReSortsEarlierResults() throws Exception {
+        HttpResponse<String> response = get("/search?departureCity=ServerA&arrivalCity=ServerB");
+        assertEquals(200, response.statusCode());
+        Map<?, ?> body = json(response);
+        assertEquals(BigDecimal.valueOf(2), body.get("count"));
+        assertEquals(false, body.get("partial"));
+        assertEquals(List.of("FAST", "SLOW"), routes(body));
+
+        Map<?, ?> resorted = json(get("/results/" + body.get("searchId") + "?sort=price_second_class&limit=1"));
+        assertEquals("PRICE_SECOND_CLASS", resorted.get("sort"));
+        assertEquals(BigDecimal.valueOf(2), resorted.get("count"));
+        assertEquals(List.of("SLOW"), routes(resorted));
+    }
+
+    @Test
+    void sortOptionsIgnoreTheDefaultLocale() throws Exception {
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr"));
+        try {
+            HttpResponse<String> response = get("/search?departureCity=ServerA&arrivalCity=ServerB"
+                    + "&sort=price_first_class");
+            assertEquals(200, response.statusCode(), response.body());
+            assertEquals(List.of("SLOW", "FAST"), routes(json(response)));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    void booksATripFromASearch() throws Exception {
+        Map<?, ?> search = json(get("/search?departureCity=ServerA&arrivalCity=ServerB"));
+        Object tripId = ((Map<?, ?>) ((List<?>) search.get("trips")).get(0)).get("id");
+
+        HttpResponse<String> response = post("/bookings", "{\"tripId\": " + tripId
+                + ", \"classRate\": \"First Class\", \"passengers\": ["
+                + "{\"firstName\": \"Ada\", \"lastName\": \"Server\", \"id\": \"SRV1\"},"
+                + "{\"firstName\": \"Bob\", \"lastName\": \"Server\", \"id\": \"SRV2\"}]}");
+        assertEquals(201, response.statusCode(), response.body());
+        Map<?, ?> booking = json(response);
+        assertEquals(2, ((List<?>) booking.get("tickets")).size());
+        assertEquals(tripId, booking.get("tripId"));
+    }
+
+    @Test
+    void rejectsBadBookings() throws Exception {
+        String passengers = ", \"classRate\": \"Second Class\", \"passengers\": "
+                + "[{\"firstName\": \"Ada\", \"lastName\": \"Server\", \"id\": \"SRV1\"}]}";
+
+        assertEquals(400, post("/bookings", "{\"tripId\": 1.5" + passengers).statusCode());
+        assertEquals(400, post("/bookings", "{\"tripId\": 1e30" + passengers).statusCode());
+        assertEquals(400, post("/bookings", "{\"tripId\": \"1\"" + passengers).statusCode());
+        assertEquals(400, post("/bookings", "[]").statusCode());
+        assertEquals(404, post("/bookings", "{\"tripId\": " + Long.MAX_VALUE + passengers).statusCode());
+    }
+
+    @Test
+    void rejectsBadRequests() throws Exception {
+        assertEquals(400, get("/search?departureCity=ServerA&sort=cheapest").statusCode());
+        assertEquals(400, get("/search?departureCity=ServerA&limit=0").statusCode());
+        assertEquals(400, get("/search?departureCity=ServerA&bogus=1").statusCode());
+        assertEquals(400, get("/search?departureCity=ServerA&departureCity=ServerB").statusCode());
+        assertEquals(404, get("/results/" + Long.MAX_VALUE).statusCode());
+        assertEquals(404, get("/nowhere").statusCode());
+
+        HttpResponse<String> response = post("/search", "");
+        assertEquals(405, response.statusCode());
+        assertEquals("GET", response.headers().firstValue("Allow").orElse(null));
+    }
+
+    @Test
+    void listsCitiesAndReportsLatency() throws Exception {
+        HttpResponse<String> cities = get("/cities");
+        assertEquals(200, cities.statusCode());
+        List<?> names = (List<?>) Json.parse(cities.body());
+        assertTrue(names.contains("ServerA") && names.contains("ServerB"));
+
+        Map<?, ?> stats = json(get("/stats"));
+        assertTrue(((Map<?, ?>) stats.get("endpoints")).containsKey("cities"));
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(uri(path)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path, String body) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(uri(path)).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+
+    private static Map<?, ?> json(HttpResponse<String> response) {
+        return (Map<?, ?>) Json.parse(response.body());
+    }
+
+    private static List<?> routes(Map<?, ?> body) {
+        return ((List<?>) body.get("trips")).stream()
+                .map(trip -> ((Map<?, ?>) ((List<?>) ((Map<?, ?>) trip).get("legs")).get(0)).get("routeId"))
+                .toList();
+    }
+}
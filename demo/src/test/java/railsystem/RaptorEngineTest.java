@@ -0,0 +1,35 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static railsystem.TestTimetables.MONDAY;
+import static railsystem.TestTimetables.connection;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(TestTimetables.class)
+class RaptorEngineTest {
+
+    @Test
+    void boardsTheDepartureThatArrivesFirstWhenTrainsOvertake() {
+        // Same route pattern: the later departure overtakes the earlier one
+        ConnectionRepository repository = new ConnectionRepository(List.of(
+                connection("R1", MONDAY, "RaptorA", "08:00", "RaptorB", "12:00"),
+                connection("R2", MONDAY, "RaptorA", "08:30", "RaptorB", "10:30")));
+        SearchCriteria criteria = SearchCriteria.builder()
+                .departureCity("RaptorA")
+                .arrivalCity("RaptorB")
+                .earliestDeparture(LocalTime.of(7, 0))
+                .travelDays(Set.of(DayOfWeek.MONDAY))
+                .build();
+
+        List<Trip> trips = new RaptorEngine().findJourneys(repository, criteria);
+
+        assertEquals(1, trips.size());
+        assertEquals("R2", trips.get(0).getConnections().get(0).getRouteId());
+    }
+}
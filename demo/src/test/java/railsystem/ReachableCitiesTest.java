@@ -0,0 +1,119 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * The one-to-all sweep must arrive at every city exactly when a Connection
+ * Scan search to that city alone arrives, and reach no other city.
+ */
+@ExtendWith(TestTimetables.class)
+class ReachableCitiesTest {
+    private static final int ORIGINS = 30;
+
+    private final Terminal terminal = Terminal.getInstance();
+
+    @AfterEach
+    void restore() {
+        terminal.setVerbose(true);
+    }
+
+    @Test
+    void arrivesWhenSearchingEachDestinationArrives() {
+        List<Connection> connections = TestTimetables.network();
+        ConnectionRepository repository = new ConnectionRepository(connections, true);
+        terminal.setConnectionRepo(repository);
+        terminal.setVerbose(false);
+        ConnectionScanEngine engine = new ConnectionScanEngine();
+        List<City> cities = repository.getWeeklyTimetable().getCities();
+
+        Random random = new Random(16);
+        int reached = 0;
+        for (int i = 0; i < ORIGINS; i++) {
+            City origin = connections.get(random.nextInt(connections.size())).getDepartureStop().getCity();
+            DayOfWeek day = DayOfWeek.of(1 + random.nextInt(7));
+            SearchCriteria criteria = new SearchCriteria();
+            criteria.setDepartureCity(origin.getName());
+            criteria.setEarliestDeparture(LocalTime.of(random.nextInt(24), 0));
+            if (random.nextBoolean()) {
+                criteria.setMaxTransfers(random.nextInt(3));
+            }
+
+            Map<City, ReachableCity> reachable = new HashMap<>();
+            for (ReachableCity city : terminal.findReachableCities(criteria, day, null)) {
+                reachable.put(city.getCity(), city);
+            }
+            int start = (day.getValue() - 1) * WeeklyTimetable.MINUTES_PER_DAY
+                    + criteria.getEarliestDeparture().toSecondOfDay() / 60;
+
+            for (City destination : cities) {
+                if (destination.equals(origin)) {
+                    continue;
+                }
+                SearchCriteria single = new SearchCriteria(criteria);
+                single.setArrivalCity(destination.getName());
+                single.setTravelDays(EnumSet.of(day));
+                List<Trip> journeys = engine.findJourneys(repository, single);
+                String query = origin.getName() + " -> " + destination.getName() + " " + day + " "
+                        + criteria.getEarliestDeparture() + " max " + criteria.getMaxTransfers();
+
+                ReachableCity city = reachable.get(destination);
+                if (journeys.isEmpty()) {
+                    assertEquals(null, city, query);
+                    continue;
+                }
+                assertTrue(city != null, query);
+                assertEquals(arrivalOn(journeys.get(0).getConnections(), day) - start,
+                        city.getTravelTime().toMinutes(), query);
+                reached++;
+            }
+        }
+        assertTrue(reached > ORIGINS * 5, "only " + reached + " destinations were reached");
+    }
+
+    @Test
+    void arrivalDeadlineDropsLaterCities() {
+        List<Connection> connections = TestTimetables.network();
+        terminal.setConnectionRepo(new ConnectionRepository(connections, true));
+        SearchCriteria criteria = new SearchCriteria();
+        criteria.setDepartureCity("Paris");
+        criteria.setEarliestDeparture(LocalTime.of(6, 0));
+
+        List<ReachableCity> all = terminal.findReachableCities(criteria, DayOfWeek.WEDNESDAY, null);
+        List<ReachableCity> byEvening = terminal.findReachableCities(criteria, DayOfWeek.WEDNESDAY,
+                LocalTime.of(18, 0));
+
+        List<ReachableCity> expected = all.stream()
+                .filter(city -> city.getTravelTime().compareTo(Duration.ofHours(12)) <= 0)
+                .toList();
+        assertTrue(!expected.isEmpty() && expected.size() < all.size());
+        assertEquals(expected, byEvening);
+    }
+
+    /**
+     * Minute of the week the legs arrive when the first is boarded on
+     * {@code day} and every later one at its first departure within the
+     * transfer limits.
+     */
+    private static int arrivalOn(List<Connection> legs, DayOfWeek day) {
+        Connection first = legs.get(0);
+        int arrival = (day.getValue() - 1) * WeeklyTimetable.MINUTES_PER_DAY
+                + WeeklyTimetable.minuteOfDay(first.getDepartureStop()) + WeeklyTimetable.legMinutes(first);
+        for (Connection leg : legs.subList(1, legs.size())) {
+            arrival = WeeklyTimetable.transferDeparture(arrival, leg) + WeeklyTimetable.legMinutes(leg);
+        }
+        return arrival;
+    }
+}
@@ -0,0 +1,147 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * A batch must answer every query exactly as searching it on its own would,
+ * with the same engine, pruning, time budget and cache.
+ */
+@ExtendWith(TestTimetables.class)
+class SearchBatchTest {
+    private static final int QUERIES = 200;
+
+    private final Terminal terminal = Terminal.getInstance();
+
+    @AfterEach
+    void restore() {
+        terminal.setSearchEngine(Terminal.SearchEngine.NESTED_LOOP);
+        terminal.setPruneDominated(false);
+        terminal.setParallelSearch(false);
+        terminal.setVerbose(true);
+        terminal.getSearchCache().invalidate();
+    }
+
+    @Test
+    void matchesSearchingEachQuery() {
+        assertBatchMatchesSearches(Terminal.SearchEngine.NESTED_LOOP, false, false);
+    }
+
+    @Test
+    void matchesSearchingEachQueryWithPruning() {
+        assertBatchMatchesSearches(Terminal.SearchEngine.NESTED_LOOP, true, false);
+        assertBatchMatchesSearches(Terminal.SearchEngine.NESTED_LOOP, true, true);
+    }
+
+    @Test
+    void matchesSearchingEachQueryWithAJourneyEngine() {
+        assertBatchMatchesSearches(Terminal.SearchEngine.RAPTOR, true, false);
+    }
+
+    @Test
+    void cachesCompleteResultsAndAnswersFromTheCache() {
+        List<SearchCriteria> queries = load(new Random(14));
+        SearchCache cache = terminal.getSearchCache();
+
+        terminal.searchBatch(queries, null);
+        long hits = cache.getHits();
+        List<SearchResult> again = terminal.searchBatch(queries, null);
+        assertEquals(hits + queries.size(), cache.getHits());
+        assertTrue(again.stream().noneMatch(SearchResult::isPartial));
+
+        terminal.searchWithCache(queries.get(0), null);
+        assertEquals(hits + queries.size() + 1, cache.getHits());
+    }
+
+    @Test
+    void spentTimeBudgetLeavesTransferSearchesPartialAndUncached() {
+        List<SearchCriteria> queries = load(new Random(15));
+        List<SearchResult> results = terminal.searchBatch(queries, Duration.ZERO);
+
+        int partial = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            SearchCriteria query = queries.get(i);
+            SearchResult result = results.get(i);
+            if (result.isPartial()) {
+                partial++;
+                assertTrue(result.getTrips().isEmpty(), query.toString());
+            } else {
+                assertEquals(legsOf(terminal.searchForConnections(query.normalized(), null).getTrips()),
+                        legsOf(result.getTrips()), query.toString());
+            }
+        }
+        assertTrue(partial > 0, "no query needed a transfer search");
+
+        long hits = terminal.getSearchCache().getHits();
+        List<SearchResult> again = terminal.searchBatch(queries, null);
+        assertFalse(again.stream().anyMatch(SearchResult::isPartial));
+        assertEquals(hits + queries.size() - partial, terminal.getSearchCache().getHits());
+    }
+
+    private void assertBatchMatchesSearches(Terminal.SearchEngine engine, boolean prune, boolean parallel) {
+        List<SearchCriteria> queries = load(new Random(engine.ordinal() * 4 + (prune ? 2 : 0) + (parallel ? 1 : 0)));
+        terminal.setSearchEngine(engine);
+        terminal.setPruneDominated(prune);
+        terminal.setParallelSearch(parallel);
+
+        List<List<List<Connection>>> expected = new ArrayList<>();
+        for (SearchCriteria query : queries) {
+            expected.add(legsOf(terminal.searchForConnections(query.normalized(), null).getTrips()));
+        }
+        terminal.getSearchCache().invalidate();
+        List<SearchResult> results = terminal.searchBatch(queries, null);
+
+        assertEquals(queries.size(), results.size());
+        int transfers = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            assertFalse(results.get(i).isPartial());
+            assertEquals(expected.get(i), legsOf(results.get(i).getTrips()), queries.get(i).toString());
+            if (results.get(i).getTrips().stream().anyMatch(trip -> trip.getConnections().size() > 1)) {
+                transfers++;
+            }
+        }
+        assertTrue(transfers > QUERIES / 10, "only " + transfers + " queries found transfer trips");
+    }
+
+    /**
+     * Loads the network and returns random queries from a handful of departure
+     * cities, so that the batch has groups to share legs in.
+     */
+    private List<SearchCriteria> load(Random random) {
+        List<Connection> connections = TestTimetables.network();
+        terminal.setConnectionRepo(new ConnectionRepository(connections, true));
+        terminal.setVerbose(false);
+
+        List<Connection> origins = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            origins.add(connections.get(random.nextInt(connections.size())));
+        }
+        List<SearchCriteria> queries = new ArrayList<>();
+        for (int i = 0; i < QUERIES; i++) {
+            Connection origin = origins.get(random.nextInt(origins.size()));
+            List<Connection> onwards = connections.stream()
+                    .filter(c -> c.getDepartureStop().getCity().equals(origin.getArrivalStop().getCity()))
+                    .toList();
+            SearchCriteria criteria = random.nextInt(3) == 0 ? TestTimetables.randomCriteria(random, connections)
+                    : new SearchCriteria();
+            criteria.setDepartureCity(origin.getDepartureStop().getCity().getName());
+            Connection last = onwards.isEmpty() ? origin : onwards.get(random.nextInt(onwards.size()));
+            criteria.setArrivalCity(last.getArrivalStop().getCity().getName());
+            queries.add(criteria);
+        }
+        return queries;
+    }
+
+    private static List<List<Connection>> legsOf(List<Trip> trips) {
+        return trips.stream().map(Trip::getConnections).toList();
+    }
+}
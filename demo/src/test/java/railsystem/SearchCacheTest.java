@@ -0,0 +1,111 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static railsystem.TestTimetables.DAILY;
+import static railsystem.TestTimetables.connection;
+
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(TestTimetables.class)
+class SearchCacheTest {
+    private final Terminal terminal = Terminal.getInstance();
+
+    @AfterEach
+    void restore() {
+        terminal.setSearchEngine(Terminal.SearchEngine.NESTED_LOOP);
+        terminal.setPruneDominated(false);
+        terminal.setVerbose(true);
+        terminal.getSearchCache().invalidate();
+    }
+
+    private static Trip trip(String routeId) {
+        return new Trip(List.of(connection(routeId, DAILY, "CacheA", "08:00", "CacheB", "09:00")));
+    }
+
+    private static SearchCriteria criteria(String from, String to) {
+        SearchCriteria criteria = new SearchCriteria();
+        criteria.setDepartureCity(from);
+        criteria.setArrivalCity(to);
+        return criteria;
+    }
+
+    private static List<String> routes(List<Trip> trips) {
+        return trips.stream().map(trip -> trip.getConnections().get(0).getRouteId()).toList();
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        SearchCache cache = new SearchCache(2);
+        cache.put("first", 0, List.of(trip("FIRST")));
+        cache.put("second", 0, List.of(trip("SECOND")));
+        cache.get("first", 0);
+        cache.put("third", 0, List.of(trip("THIRD")));
+
+        assertNull(cache.get("second", 0));
+        assertEquals(List.of("FIRST"), routes(cache.get("first", 0)));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    void lookupForANewerVersionDropsEveryEntry() {
+        SearchCache cache = new SearchCache(4);
+        cache.put("first", 0, List.of(trip("FIRST")));
+        cache.put("second", 0, List.of(trip("SECOND")));
+
+        assertNull(cache.get("first", 1));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getInvalidations());
+    }
+
+    @Test
+    void changingAReturnedListDoesNotChangeTheEntry() {
+        SearchCache cache = new SearchCache(1);
+        cache.put("key", 0, List.of(trip("KEPT")));
+
+        cache.get("key", 0).clear();
+
+        assertEquals(List.of("KEPT"), routes(cache.get("key", 0)));
+    }
+
+    @Test
+    void replacingTheConnectionsInvalidatesCachedSearches() {
+        ConnectionRepository repository = new ConnectionRepository(List.of(
+                connection("OLD", DAILY, "CacheC", "08:00", "CacheD", "09:00")), true);
+        terminal.setConnectionRepo(repository);
+        terminal.setVerbose(false);
+        SearchCache cache = terminal.getSearchCache();
+        long hits = cache.getHits();
+
+        assertEquals(List.of("OLD"), routes(terminal.searchWithCache(criteria("CacheC", "CacheD"), null).getTrips()));
+        assertEquals(List.of("OLD"), routes(terminal.searchWithCache(criteria("CacheC", "CacheD"), null).getTrips()));
+        assertEquals(hits + 1, cache.getHits());
+
+        repository.setConnections(List.of(connection("NEW", DAILY, "CacheC", "10:00", "CacheD", "11:00")));
+
+        assertEquals(List.of("NEW"), routes(terminal.searchWithCache(criteria("CacheC", "CacheD"), null).getTrips()));
+        assertEquals(hits + 1, cache.getHits());
+    }
+
+    @Test
+    void searchesWithAnotherEngineOrPruningAreNotServedFromTheCache() {
+        terminal.setConnectionRepo(new ConnectionRepository(List.of(
+                connection("DIRECT", DAILY, "CacheE", "08:00", "CacheF", "09:00")), true));
+        terminal.setVerbose(false);
+        SearchCache cache = terminal.getSearchCache();
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+
+        terminal.searchWithCache(criteria("CacheE", "CacheF"), null);
+        terminal.setSearchEngine(Terminal.SearchEngine.RAPTOR);
+        terminal.searchWithCache(criteria("CacheE", "CacheF"), null);
+        terminal.setPruneDominated(true);
+        terminal.searchWithCache(criteria("CacheE", "CacheF"), null);
+
+        assertEquals(hits, cache.getHits());
+        assertEquals(misses + 3, cache.getMisses());
+    }
+}
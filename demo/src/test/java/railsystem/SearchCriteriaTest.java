@@ -0,0 +1,80 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static railsystem.TestTimetables.DAILY;
+import static railsystem.TestTimetables.MONDAY;
+import static railsystem.TestTimetables.connection;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(TestTimetables.class)
+class SearchCriteriaTest {
+    private static final int QUERIES = 2000;
+
+    @Test
+    void compiledPredicateAcceptsExactlyWhatMatchesAccepts() {
+        List<Connection> connections = TestTimetables.network();
+        Random random = new Random(11);
+        for (int i = 0; i < QUERIES; i++) {
+            SearchCriteria criteria = TestTimetables.randomCriteria(random, connections);
+            Predicate<Connection> compiled = criteria.compile();
+            for (Connection connection : connections) {
+                assertEquals(criteria.matches(connection), compiled.test(connection), criteria + " " + connection);
+            }
+        }
+    }
+
+    @Test
+    void unknownCityOrTrainMatchesNothing() {
+        Connection connection = connection("KNOWN", DAILY, "CriteriaA", "08:00", "CriteriaB", "09:00");
+        SearchCriteria unknownCity = new SearchCriteria();
+        unknownCity.setArrivalCity("CriteriaZ");
+        SearchCriteria unknownTrain = new SearchCriteria();
+        unknownTrain.setPreferredTrain("Hovercraft");
+
+        assertFalse(unknownCity.compile().test(connection));
+        assertFalse(unknownTrain.compile().test(connection));
+        assertTrue(new SearchCriteria().compile().test(connection));
+    }
+
+    @Test
+    void comparesTimesToTheSecondAndFaresToTheCent() {
+        Connection connection = connection("EXACT", MONDAY, "CriteriaC", "08:00:30", "CriteriaD", "09:00",
+                "10.00", "5.00");
+        SearchCriteria criteria = new SearchCriteria();
+
+        criteria.setEarliestDeparture(LocalTime.of(8, 0, 30));
+        assertTrue(criteria.compile().test(connection));
+        criteria.setEarliestDeparture(LocalTime.of(8, 0, 31));
+        assertFalse(criteria.compile().test(connection));
+
+        criteria = new SearchCriteria();
+        criteria.setMaxTotalSecondClassRate(new BigDecimal("5.009"));
+        assertTrue(criteria.compile().test(connection));
+        criteria.setMaxTotalSecondClassRate(new BigDecimal("4.999"));
+        assertFalse(criteria.compile().test(connection));
+    }
+
+    @Test
+    void requiresEveryTravelDay() {
+        Connection connection = connection("MONDAY", MONDAY, "CriteriaE", "08:00", "CriteriaF", "09:00");
+        SearchCriteria criteria = new SearchCriteria();
+
+        criteria.setTravelDays(EnumSet.of(DayOfWeek.MONDAY));
+        assertTrue(criteria.compile().test(connection));
+        criteria.setTravelDays(EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.TUESDAY));
+        assertFalse(criteria.compile().test(connection));
+        criteria.setTravelDays(EnumSet.noneOf(DayOfWeek.class));
+        assertTrue(criteria.compile().test(connection));
+    }
+}
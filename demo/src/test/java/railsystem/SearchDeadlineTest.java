@@ -0,0 +1,144 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * A search whose time budget runs out returns some of the trips the full
+ * search finds, flagged as partial, and never caches them.
+ */
+@ExtendWith(TestTimetables.class)
+class SearchDeadlineTest {
+    private static final int QUERIES = 200;
+
+    private final Terminal terminal = Terminal.getInstance();
+
+    @AfterEach
+    void restore() {
+        terminal.setSearchEngine(Terminal.SearchEngine.NESTED_LOOP);
+        terminal.setParallelSearch(false);
+        terminal.setVerbose(true);
+        terminal.getSearchCache().invalidate();
+    }
+
+    @Test
+    void expiresOnlyWithABudget() {
+        assertFalse(SearchDeadline.after(null).isExpired());
+        assertFalse(SearchDeadline.after(Duration.ofHours(1)).isExpired());
+
+        SearchDeadline spent = SearchDeadline.after(Duration.ZERO);
+        assertFalse(spent.wasReached());
+        assertTrue(spent.isExpired());
+        assertTrue(spent.wasReached());
+        assertThrows(IllegalArgumentException.class, () -> SearchDeadline.after(Duration.ofMillis(-1)));
+    }
+
+    @Test
+    void partialResultsAreTripsOfTheFullSearch() {
+        assertPartialResultsAreTripsOfTheFullSearch(false);
+    }
+
+    @Test
+    void partialResultsAreTripsOfTheFullSearchInParallel() {
+        assertPartialResultsAreTripsOfTheFullSearch(true);
+    }
+
+    @Test
+    void partialResultsAreNotCached() {
+        List<SearchCriteria> queries = transferQueries(new Random(16));
+        SearchCache cache = terminal.getSearchCache();
+
+        for (SearchCriteria query : queries) {
+            long hits = cache.getHits();
+            SearchResult spent = terminal.searchWithCache(query, Duration.ZERO);
+            if (!spent.isPartial()) {
+                continue;
+            }
+            SearchResult full = terminal.searchWithCache(query, null);
+            assertFalse(full.isPartial());
+            assertEquals(hits, cache.getHits(), query.toString());
+            return;
+        }
+        throw new AssertionError("no search ran out of its budget");
+    }
+
+    @Test
+    void journeyEnginesIgnoreTheBudget() {
+        List<SearchCriteria> queries = transferQueries(new Random(17));
+        terminal.setSearchEngine(Terminal.SearchEngine.RAPTOR);
+
+        for (SearchCriteria query : queries.subList(0, 20)) {
+            SearchResult result = terminal.searchForConnections(query, Duration.ZERO);
+            assertFalse(result.isPartial(), query.toString());
+            assertEquals(legsOf(terminal.searchForConnections(query)), legsOf(result.getTrips()), query.toString());
+        }
+    }
+
+    private void assertPartialResultsAreTripsOfTheFullSearch(boolean parallel) {
+        List<SearchCriteria> queries = transferQueries(new Random(parallel ? 19 : 18));
+        terminal.setParallelSearch(parallel);
+
+        int partial = 0;
+        for (SearchCriteria query : queries) {
+            List<List<Connection>> full = legsOf(terminal.searchForConnections(query));
+
+            SearchResult spent = terminal.searchForConnections(query, Duration.ZERO);
+            SearchResult cut = terminal.searchForConnections(query, Duration.ofNanos(20_000));
+            SearchResult generous = terminal.searchForConnections(query, Duration.ofSeconds(30));
+
+            assertTrue(new HashSet<>(full).containsAll(legsOf(spent.getTrips())), query.toString());
+            assertTrue(new HashSet<>(full).containsAll(legsOf(cut.getTrips())), query.toString());
+            assertFalse(generous.isPartial(), query.toString());
+            assertEquals(full, legsOf(generous.getTrips()), query.toString());
+            if (spent.isPartial()) {
+                partial++;
+            }
+        }
+        assertTrue(partial > QUERIES / 10, "only " + partial + " searches ran out of their budget");
+    }
+
+    /**
+     * Queries between cities two legs apart with no direct connection, so that
+     * each one runs the transfer search.
+     */
+    private List<SearchCriteria> transferQueries(Random random) {
+        List<Connection> connections = TestTimetables.network();
+        ConnectionRepository repository = new ConnectionRepository(connections, true);
+        terminal.setConnectionRepo(repository);
+        terminal.setVerbose(false);
+
+        List<SearchCriteria> queries = new ArrayList<>();
+        while (queries.size() < QUERIES) {
+            Connection first = connections.get(random.nextInt(connections.size()));
+            List<Connection> onwards = connections.stream()
+                    .filter(c -> c.getDepartureStop().getCity().equals(first.getArrivalStop().getCity()))
+                    .toList();
+            if (onwards.isEmpty()) {
+                continue;
+            }
+            SearchCriteria criteria = new SearchCriteria();
+            criteria.setDepartureCity(first.getDepartureStop().getCity().getName());
+            criteria.setArrivalCity(onwards.get(random.nextInt(onwards.size())).getArrivalStop().getCity().getName());
+            if (!criteria.getDepartureCity().equals(criteria.getArrivalCity())
+                    && repository.search(criteria).isEmpty()) {
+                queries.add(criteria);
+            }
+        }
+        return queries;
+    }
+
+    private static List<List<Connection>> legsOf(List<Trip> trips) {
+        return trips.stream().map(Trip::getConnections).toList();
+    }
+}
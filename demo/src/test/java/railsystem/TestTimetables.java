@@ -0,0 +1,99 @@
+package railsystem;
+
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * Hand-written connections and random criteria for tests. Building connections
+ * registers their cities and trains globally, so test classes using them are
+ * extended with this class, which clears those registries and the travellers'
+ * after every test.
+ */
+final class TestTimetables implements AfterEachCallback {
+    static final Set<DayOfWeek> MONDAY = EnumSet.of(DayOfWeek.MONDAY);
+    static final Set<DayOfWeek> DAILY = EnumSet.allOf(DayOfWeek.class);
+
+    /** A same-day connection with a first class fare of 10 and a second class fare of 1. */
+    static Connection connection(String routeId, Set<DayOfWeek> days, String from, String departure, String to,
+            String arrival) {
+        return connection(routeId, days, from, departure, to, arrival, "10", "1");
+    }
+
+    static Connection connection(String routeId, Set<DayOfWeek> days, String from, String departure, String to,
+            String arrival, String firstClass, String secondClass) {
+        return Connection.of(routeId, "TestTrain", days, new BigDecimal(firstClass), new BigDecimal(secondClass),
+                from, LocalTime.parse(departure), to, LocalTime.parse(arrival), false);
+    }
+
+    /** The connections of the bundled European network. */
+    static List<Connection> network() {
+        return new Loader().loadConnections(Paths.get("src/main/resources/eu_rail_network.csv"));
+    }
+
+    /**
+     * Criteria setting each constraint about half the time, with cities and
+     * trains taken from the network, sometimes an unknown one, and times and
+     * fares that are not always whole minutes and cents.
+     */
+    static SearchCriteria randomCriteria(Random random, List<Connection> connections) {
+        Connection sample = connections.get(random.nextInt(connections.size()));
+        SearchCriteria criteria = new SearchCriteria();
+        if (random.nextBoolean()) {
+            criteria.setDepartureCity(random.nextInt(20) == 0 ? "Atlantis"
+                    : sample.getDepartureStop().getCity().getName());
+        }
+        if (random.nextBoolean()) {
+            criteria.setArrivalCity(sample.getArrivalStop().getCity().getName());
+        }
+        if (random.nextBoolean()) {
+            criteria.setEarliestDeparture(randomTime(random));
+        }
+        if (random.nextBoolean()) {
+            criteria.setLatestArrival(randomTime(random));
+        }
+        if (random.nextInt(4) == 0) {
+            criteria.setNextDay(random.nextBoolean());
+        }
+        if (random.nextBoolean()) {
+            Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+            for (DayOfWeek day : DayOfWeek.values()) {
+                if (random.nextInt(4) == 0) {
+                    days.add(day);
+                }
+            }
+            criteria.setTravelDays(days);
+        }
+        if (random.nextInt(4) == 0) {
+            criteria.setPreferredTrain(sample.getTrain().getTrainType());
+        }
+        if (random.nextBoolean()) {
+            criteria.setFirstClassRate(BigDecimal.valueOf(random.nextInt(300_000), 3));
+        }
+        if (random.nextBoolean()) {
+            criteria.setSecondClassRate(BigDecimal.valueOf(random.nextInt(200_000), 3));
+        }
+        if (random.nextInt(4) == 0) {
+            criteria.setMaxTotalFirstClassRate(BigDecimal.valueOf(random.nextInt(300_000), 3));
+        }
+        return criteria;
+    }
+
+    private static LocalTime randomTime(Random random) {
+        return LocalTime.of(random.nextInt(24), random.nextInt(60), random.nextInt(2) * 30);
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        City.clearRegistry();
+        Train.clearRegistry();
+        Traveller.clearRegistry();
+    }
+}
@@ -0,0 +1,102 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static railsystem.TestTimetables.DAILY;
+import static railsystem.TestTimetables.connection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Replacing the connections publishes a new snapshot; pinned repositories and
+ * searches already running keep the one they started with.
+ */
+@ExtendWith(TestTimetables.class)
+class TimetableSnapshotTest {
+    private static final int SEARCHES = 5000;
+
+    private final Terminal terminal = Terminal.getInstance();
+
+    @AfterEach
+    void restore() {
+        terminal.setVerbose(true);
+        terminal.getSearchCache().invalidate();
+    }
+
+    private static List<Connection> timetable(String prefix) {
+        return List.of(
+                connection(prefix + "1", DAILY, "SnapX", "08:00", "Snap" + prefix, "09:00"),
+                connection(prefix + "2", DAILY, "Snap" + prefix, "10:00", "SnapY", "11:00"));
+    }
+
+    @Test
+    void pinnedRepositoryKeepsItsSnapshot() {
+        ConnectionRepository repository = new ConnectionRepository(timetable("A"), true);
+        ConnectionRepository pinned = repository.pin();
+        WeeklyTimetable weekly = pinned.getWeeklyTimetable();
+
+        repository.setConnections(timetable("B"));
+
+        assertEquals(1, repository.getVersion());
+        assertEquals(0, pinned.getVersion());
+        assertEquals(timetable("A").size(), pinned.getConnections().size());
+        assertEquals("A1", pinned.getDepartures(City.getInstance("SnapX")).get(0).getRouteId());
+        assertEquals("B1", repository.getDepartures(City.getInstance("SnapX")).get(0).getRouteId());
+        assertSame(weekly, pinned.getWeeklyTimetable());
+        assertNotSame(weekly, repository.getWeeklyTimetable());
+        assertSame(pinned, pinned.pin());
+        assertThrows(UnsupportedOperationException.class, () -> pinned.setConnections(timetable("C")));
+    }
+
+    /**
+     * The two timetables reach SnapY through different cities, so a search that
+     * mixed them would find no trip or legs from both.
+     */
+    @Test
+    void searchesNeverMixTwoTimetables() throws Exception {
+        ConnectionRepository repository = new ConnectionRepository(timetable("A"), true);
+        terminal.setConnectionRepo(repository);
+        terminal.setVerbose(false);
+        SearchCriteria criteria = new SearchCriteria();
+        criteria.setDepartureCity("SnapX");
+        criteria.setArrivalCity("SnapY");
+
+        AtomicBoolean done = new AtomicBoolean();
+        CompletableFuture<Void> swapping = CompletableFuture.runAsync(() -> {
+            for (int i = 0; !done.get(); i++) {
+                repository.setConnections(timetable(i % 2 == 0 ? "B" : "A"));
+            }
+        });
+
+        List<CompletableFuture<SearchResult>> results = new ArrayList<>();
+        try (ConcurrentSearchService searches = new ConcurrentSearchService(terminal)) {
+            for (int i = 0; i < SEARCHES; i++) {
+                results.add(searches.submit(criteria));
+            }
+            for (CompletableFuture<SearchResult> result : results) {
+                List<Trip> trips = result.join().getTrips();
+                assertEquals(1, trips.size());
+                Set<Character> timetables = trips.get(0).getConnections().stream()
+                        .map(leg -> leg.getRouteId().charAt(0))
+                        .collect(Collectors.toSet());
+                assertEquals(1, timetables.size(), trips.get(0).toString());
+            }
+        } finally {
+            done.set(true);
+        }
+        swapping.join();
+
+        assertTrue(repository.getVersion() > 0);
+    }
+}
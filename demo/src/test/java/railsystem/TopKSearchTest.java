@@ -0,0 +1,94 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static railsystem.TestTimetables.DAILY;
+import static railsystem.TestTimetables.connection;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * The bounded search must return the first {@code k} trips of the full search
+ * sorted by the same option, for every option.
+ */
+@ExtendWith(TestTimetables.class)
+class TopKSearchTest {
+    private static final int QUERIES = 300;
+
+    private final Terminal terminal = Terminal.getInstance();
+
+    @AfterEach
+    void restore() {
+        terminal.setParallelSearch(false);
+        terminal.setVerbose(true);
+    }
+
+    @Test
+    void keepsTheFirstTripsOfTheSortedFullSearch() {
+        List<Connection> connections = TestTimetables.network();
+        terminal.setConnectionRepo(new ConnectionRepository(connections, true));
+        terminal.setSearchEngine(Terminal.SearchEngine.NESTED_LOOP);
+        terminal.setVerbose(false);
+
+        Random random = new Random(8);
+        for (int i = 0; i < QUERIES; i++) {
+            SearchCriteria criteria = twoHopQuery(random, connections);
+            terminal.setParallelSearch(i % 2 == 1);
+            TripOrder full = new TripOrder(terminal.searchForConnections(criteria));
+
+            for (Terminal.SortOption sortBy : Terminal.SortOption.values()) {
+                int k = 1 + random.nextInt(8);
+                List<Trip> sorted = full.sortedBy(sortBy);
+                List<Trip> top = new ArrayList<>();
+                terminal.searchTopK(criteria, sortBy, k).forEachRemaining(top::add);
+
+                assertEquals(legsOf(sorted.subList(0, Math.min(k, sorted.size()))), legsOf(top),
+                        criteria.getDepartureCity() + " -> " + criteria.getArrivalCity() + " " + sortBy + " " + k);
+            }
+        }
+    }
+
+    @Test
+    void searchesTheTimetableCurrentWhenItWasCalled() {
+        ConnectionRepository repository = new ConnectionRepository(List.of(
+                connection("OLD", DAILY, "TopA", "08:00", "TopB", "09:00")), true);
+        terminal.setConnectionRepo(repository);
+        SearchCriteria criteria = new SearchCriteria();
+        criteria.setDepartureCity("TopA");
+        criteria.setArrivalCity("TopB");
+
+        Iterator<Trip> top = terminal.searchTopK(criteria, Terminal.SortOption.DURATION, 5);
+        repository.setConnections(List.of(connection("NEW", DAILY, "TopA", "10:00", "TopB", "11:00")));
+
+        assertTrue(top.hasNext());
+        assertEquals("OLD", top.next().getConnections().get(0).getRouteId());
+        assertFalse(top.hasNext());
+    }
+
+    private static SearchCriteria twoHopQuery(Random random, List<Connection> connections) {
+        Connection first = connections.get(random.nextInt(connections.size()));
+        List<Connection> onwards = connections.stream()
+                .filter(c -> c.getDepartureStop().getCity().equals(first.getArrivalStop().getCity()))
+                .toList();
+        SearchCriteria criteria = new SearchCriteria();
+        criteria.setDepartureCity(first.getDepartureStop().getCity().getName());
+        Connection last = onwards.isEmpty() ? first : onwards.get(random.nextInt(onwards.size()));
+        criteria.setArrivalCity(last.getArrivalStop().getCity().getName());
+        if (random.nextBoolean()) {
+            criteria.setMaxTotalSecondClassRate(BigDecimal.valueOf(50 + random.nextInt(200)));
+        }
+        return criteria;
+    }
+
+    private static List<List<Connection>> legsOf(List<Trip> trips) {
+        return trips.stream().map(Trip::getConnections).toList();
+    }
+}
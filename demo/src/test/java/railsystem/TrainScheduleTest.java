@@ -0,0 +1,63 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.DayOfWeek;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the day-mask helpers against the {@code Set<DayOfWeek>} operations
+ * they replaced, over every combination of days.
+ */
+class TrainScheduleTest {
+
+    private static Set<DayOfWeek> daysOf(int mask) {
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if ((mask & (1 << (day.getValue() - 1))) != 0) {
+                days.add(day);
+            }
+        }
+        return days;
+    }
+
+    @Test
+    void maskRoundTripsEveryDaySet() {
+        for (int mask = 1; mask <= TrainSchedule.ALL_DAYS; mask++) {
+            Set<DayOfWeek> days = daysOf(mask);
+            TrainSchedule schedule = new TrainSchedule(days);
+            assertEquals(mask, TrainSchedule.maskOf(days));
+            assertEquals(mask, schedule.getDayMask());
+            for (DayOfWeek day : DayOfWeek.values()) {
+                assertEquals(days.contains(day), schedule.operatesOn(day));
+            }
+        }
+    }
+
+    @Test
+    void operatesOnAllMatchesContainsAll() {
+        for (int operating = 1; operating <= TrainSchedule.ALL_DAYS; operating++) {
+            TrainSchedule schedule = new TrainSchedule(daysOf(operating));
+            for (int travel = 0; travel <= TrainSchedule.ALL_DAYS; travel++) {
+                assertEquals(schedule.getOperatingDays().containsAll(daysOf(travel)),
+                        schedule.operatesOnAll(travel), operating + " / " + travel);
+            }
+        }
+    }
+
+    @Test
+    void rotateMatchesShiftingEachDay() {
+        for (int mask = 0; mask <= TrainSchedule.ALL_DAYS; mask++) {
+            for (int shift = -8; shift <= 8; shift++) {
+                long days = shift;
+                Set<DayOfWeek> expected = daysOf(mask).stream()
+                        .map(day -> day.plus(days))
+                        .collect(Collectors.toCollection(() -> EnumSet.noneOf(DayOfWeek.class)));
+                assertEquals(expected, daysOf(TrainSchedule.rotate(mask, shift)), mask + " >> " + shift);
+            }
+        }
+    }
+}
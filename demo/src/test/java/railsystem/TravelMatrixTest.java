@@ -0,0 +1,82 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static railsystem.TestTimetables.DAILY;
+import static railsystem.TestTimetables.connection;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A matrix written to either file format reads back with the same duration
+ * and fare for every pair of cities.
+ */
+@ExtendWith(TestTimetables.class)
+class TravelMatrixTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void networkMatrixSurvivesBothFormats() throws IOException {
+        TravelMatrix matrix = TravelMatrix.compute(new ConnectionRepository(TestTimetables.network(), true));
+        Path csv = directory.resolve("matrix.csv");
+        Path binary = directory.resolve("matrix.bin");
+        matrix.writeCsv(csv);
+        matrix.writeBinary(binary);
+
+        assertSameValues(matrix, TravelMatrix.readCsv(csv));
+        assertSameValues(matrix, TravelMatrix.readBinary(binary));
+        assertEquals(matrix.getCities(), TravelMatrix.readBinary(binary).getCities());
+    }
+
+    @Test
+    void quotedCityNamesSurviveTheCsvFile() throws IOException {
+        TravelMatrix matrix = TravelMatrix.compute(new ConnectionRepository(List.of(
+                connection("NS", DAILY, "Matrix, North", "08:00", "Matrix \"South\"", "09:30", "20", "7.50"),
+                connection("SE", DAILY, "Matrix \"South\"", "10:00", "MatrixEast", "11:00", "20", "2.25")), true));
+        Path csv = directory.resolve("quoted.csv");
+        matrix.writeCsv(csv);
+        TravelMatrix read = TravelMatrix.readCsv(csv);
+
+        City north = City.getInstance("Matrix, North");
+        City east = City.getInstance("MatrixEast");
+        assertEquals(Duration.ofMinutes(180), read.getBestDuration(north, east));
+        assertEquals(Money.ofCents(975), read.getCheapestSecondClassFare(north, east));
+        assertNull(read.getBestDuration(east, north));
+        assertSameValues(matrix, read);
+    }
+
+    @Test
+    void rejectsFilesOfAnotherKind() throws IOException {
+        Path file = directory.resolve("other.csv");
+        Files.writeString(file, "Origin,Destination\n");
+
+        assertThrows(IOException.class, () -> TravelMatrix.readCsv(file));
+        assertThrows(IOException.class, () -> TravelMatrix.readBinary(file));
+    }
+
+    private static void assertSameValues(TravelMatrix expected, TravelMatrix actual) {
+        int reachable = 0;
+        for (City from : expected.getCities()) {
+            for (City to : expected.getCities()) {
+                String pair = from.getName() + " -> " + to.getName();
+                assertEquals(expected.getBestDuration(from, to), actual.getBestDuration(from, to), pair);
+                assertEquals(expected.getCheapestSecondClassFare(from, to),
+                        actual.getCheapestSecondClassFare(from, to), pair);
+                if (expected.getBestDuration(from, to) != null) {
+                    reachable++;
+                }
+            }
+        }
+        assertTrue(reachable > 0);
+    }
+}
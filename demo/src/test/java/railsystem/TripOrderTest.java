@@ -0,0 +1,113 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static railsystem.TestTimetables.DAILY;
+import static railsystem.TestTimetables.connection;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Every ordering must equal a stable sort of the original list with the
+ * option's comparator, on lists short enough for the sequential sort and long
+ * enough for the parallel one, and with keys too large to pack.
+ */
+@ExtendWith(TestTimetables.class)
+class TripOrderTest {
+
+    @Test
+    void ordersLikeAStableSortOfTheList() {
+        List<Trip> trips = randomTrips(new Random(20), 500);
+        assertOrdersLikeAStableSort(trips);
+    }
+
+    @Test
+    void parallelSortOfLongListsIsStableToo() {
+        List<Trip> trips = randomTrips(new Random(21), TripOrder.PARALLEL_THRESHOLD + 1000);
+        assertOrdersLikeAStableSort(trips);
+    }
+
+    @Test
+    void faresTooLargeToPackAreSortedStably() {
+        List<Trip> trips = randomTrips(new Random(22), 200);
+        trips.add(100, new Trip(List.of(connection("LUXURY", DAILY, "OrderA", "08:00", "OrderB", "09:00",
+                "30000000", "25000000"))));
+        trips.add(new Trip(List.of(connection("LUXURY_TOO", DAILY, "OrderA", "08:00", "OrderB", "09:00",
+                "30000000", "25000000"))));
+        assertOrdersLikeAStableSort(trips);
+    }
+
+    @Test
+    void reusesAnOrderingOnceComputed() {
+        TripOrder order = new TripOrder(randomTrips(new Random(23), 50));
+
+        List<Trip> byPrice = order.sortedBy(Terminal.SortOption.PRICE_SECOND_CLASS);
+        order.sortedBy(Terminal.SortOption.DURATION);
+
+        assertSame(byPrice, order.sortedBy(Terminal.SortOption.PRICE_SECOND_CLASS));
+        assertThrows(UnsupportedOperationException.class, () -> byPrice.remove(0));
+    }
+
+    private static void assertOrdersLikeAStableSort(List<Trip> trips) {
+        TripOrder order = new TripOrder(trips);
+        for (Terminal.SortOption option : Terminal.SortOption.values()) {
+            List<Trip> expected = new ArrayList<>(trips);
+            expected.sort(comparator(option));
+
+            assertEquals(expected, order.sortedBy(option), option.name());
+            List<Trip> sorted = new ArrayList<>(trips);
+            Terminal.getInstance().sortTrips(sorted, option);
+            assertEquals(expected, sorted, option.name());
+        }
+    }
+
+    private static Comparator<Trip> comparator(Terminal.SortOption option) {
+        switch (option) {
+            case PRICE_FIRST_CLASS:
+                return Comparator.comparingLong(Trip::getFirstClassCents);
+            case PRICE_SECOND_CLASS:
+                return Comparator.comparingLong(Trip::getSecondClassCents);
+            case DEPARTURE_TIME:
+                return Comparator.comparingInt(Trip::getDepartureMinute);
+            case ARRIVAL_TIME:
+                return Comparator.comparingInt(Trip::getArrivalMinute);
+            case TRANSFERS:
+                return Comparator.comparingInt(Trip::getTransferCount).thenComparingLong(Trip::getDurationMinutes);
+            case DURATION:
+            default:
+                return Comparator.comparingLong(Trip::getDurationMinutes);
+        }
+    }
+
+    /**
+     * Trips of one to three daily legs with times on the hour and a few fares,
+     * so that most sort keys are shared by many trips.
+     */
+    private static List<Trip> randomTrips(Random random, int count) {
+        List<Trip> trips = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<Connection> legs = new ArrayList<>();
+            int hour = random.nextInt(24);
+            int legCount = 1 + random.nextInt(3);
+            for (int leg = 0; leg < legCount; leg++) {
+                int length = 1 + random.nextInt(3);
+                String fare = String.valueOf(10 * (1 + random.nextInt(4)));
+                legs.add(connection("LEG" + leg, DAILY, "Order" + leg, time(hour), "Order" + (leg + 1),
+                        time(hour + length), fare, fare));
+                hour += length + 1;
+            }
+            trips.add(new Trip(legs));
+        }
+        return trips;
+    }
+
+    private static String time(int hour) {
+        return String.format("%02d:00", hour % 24);
+    }
+}
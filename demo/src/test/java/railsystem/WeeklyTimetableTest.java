@@ -0,0 +1,100 @@
+package railsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static railsystem.TestTimetables.DAILY;
+import static railsystem.TestTimetables.MONDAY;
+import static railsystem.TestTimetables.connection;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Trip timing on the minute-of-week axis: overnight legs, transfer limits,
+ * waits of a whole day and journeys over several nights.
+ */
+@ExtendWith(TestTimetables.class)
+class WeeklyTimetableTest {
+    private static final Set<DayOfWeek> TUESDAY = EnumSet.of(DayOfWeek.TUESDAY);
+    private static final Set<DayOfWeek> WEDNESDAY = EnumSet.of(DayOfWeek.WEDNESDAY);
+
+    @Test
+    void overnightLegArrivesTheNextDay() {
+        Trip trip = new Trip(List.of(connection("NIGHT", MONDAY, "AxisA", "22:00", "AxisB", "06:00")));
+
+        assertEquals(Duration.ofHours(8), trip.getTotalDuration());
+        assertEquals(22 * 60, trip.getDepartureMinute());
+        assertEquals(24 * 60 + 6 * 60, trip.getArrivalMinute());
+        assertEquals(1, trip.getArrivalDayOffset());
+    }
+
+    @Test
+    void transferNeedsTwentyMinutesAndAtMostOneDay() {
+        Connection first = connection("FIRST", DAILY, "AxisC", "08:00", "AxisD", "09:00");
+        Connection justInTime = connection("ON", DAILY, "AxisD", "09:20", "AxisE", "10:00");
+        Connection tooTight = connection("TIGHT", DAILY, "AxisD", "08:50", "AxisE", "10:00");
+        Connection tooLate = connection("LATE", MONDAY, "AxisD", "09:19", "AxisE", "10:00");
+
+        Trip trip = new Trip(List.of(first, justInTime));
+        assertEquals(List.of(Duration.ofMinutes(20)), trip.getTransferTimes());
+        assertEquals(Duration.ofHours(2), trip.getTotalDuration());
+
+        // The 08:50 has left, so the traveller takes the next day's
+        trip = new Trip(List.of(first, tooTight));
+        assertEquals(List.of(Duration.ofMinutes(24 * 60 - 10)), trip.getTransferTimes());
+        assertEquals(1, trip.getArrivalDayOffset());
+
+        // Only the next Monday's 09:19 could be boarded, a week later
+        assertFalse(WeeklyTimetable.canTransfer(first, tooLate));
+        assertEquals(-1, WeeklyTimetable.transferDeparture(9 * 60, tooLate));
+    }
+
+    @Test
+    void waitOfExactlyOneDayIsCountedInFull() {
+        Connection first = connection("MON", MONDAY, "AxisF", "09:00", "AxisG", "10:00");
+        Connection sameTimeTomorrow = connection("TUE", TUESDAY, "AxisG", "10:00", "AxisH", "11:00");
+        Connection dayAfterTomorrow = connection("WED", WEDNESDAY, "AxisG", "10:00", "AxisH", "11:00");
+
+        assertTrue(WeeklyTimetable.canTransfer(first, sameTimeTomorrow));
+        Trip trip = new Trip(List.of(first, sameTimeTomorrow));
+        assertEquals(List.of(Duration.ofDays(1)), trip.getTransferTimes());
+        assertEquals(Duration.ofHours(26), trip.getTotalDuration());
+
+        assertFalse(WeeklyTimetable.canTransfer(first, dayAfterTomorrow));
+        assertNull(WeeklyTimetable.schedule(List.of(first, dayAfterTomorrow)));
+    }
+
+    @Test
+    void departsOnTheOperatingDayGivingTheShortestJourney() {
+        Connection first = connection("MON_THU", EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.THURSDAY), "AxisI", "08:00",
+                "AxisJ", "09:00");
+        Connection second = connection("FRI", EnumSet.of(DayOfWeek.FRIDAY), "AxisJ", "08:00", "AxisK", "09:00");
+        List<Connection> legs = List.of(first, second);
+
+        int[] schedule = WeeklyTimetable.schedule(legs);
+        assertEquals(3 * WeeklyTimetable.MINUTES_PER_DAY + 8 * 60, schedule[0]);
+        assertEquals(Duration.ofHours(25), new Trip(legs).getTotalDuration());
+        assertEquals(1 << 3, WeeklyTimetable.departureDays(legs));
+    }
+
+    @Test
+    void journeyOverSeveralNightsAndTheWeekEnd() {
+        List<Connection> legs = List.of(
+                connection("SAT", EnumSet.of(DayOfWeek.SATURDAY), "AxisL", "21:00", "AxisM", "07:00"),
+                connection("SUN", EnumSet.of(DayOfWeek.SUNDAY), "AxisM", "20:00", "AxisN", "05:00"),
+                connection("MON", MONDAY, "AxisN", "06:00", "AxisO", "08:00"));
+        Trip trip = new Trip(legs);
+
+        assertEquals(Duration.ofHours(35), trip.getTotalDuration());
+        assertEquals(List.of(Duration.ofHours(13), Duration.ofHours(1)), trip.getTransferTimes());
+        assertEquals(2, trip.getArrivalDayOffset());
+        assertEquals(2 * WeeklyTimetable.MINUTES_PER_DAY + 8 * 60, trip.getArrivalMinute());
+    }
+}